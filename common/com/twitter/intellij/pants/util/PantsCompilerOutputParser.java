@@ -0,0 +1,130 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming parser for compiler output of Pants. Unlike {@link PantsOutputMessage#parseCompilerMessage(String)}
+ * it looks for a log level in a single pass and doesn't create any objects for lines without a log level.
+ * <p/>
+ * An instance should live as long as a single build because it caches existence of files mentioned in the output.
+ */
+public class PantsCompilerOutputParser {
+  private final Map<String, Boolean> myFileExistenceCache = new HashMap<String, Boolean>();
+
+  /**
+   * @return a level of a line with {@code [error]}, {@code [warning]}, {@code [warn]}, {@code [debug]} or
+   * {@code error:}, {@code warning:}, {@code warn:} markers or {@code null} if there are no markers.
+   * A debug line has {@link PantsOutputMessage.Level#INFO} level.
+   */
+  @Nullable
+  public static PantsOutputMessage.Level findLevel(@NotNull CharSequence line) {
+    PantsOutputMessage.Level result = null;
+    final int length = line.length();
+    for (int i = 0; i < length; i++) {
+      final char c = line.charAt(i);
+      final char terminator;
+      if (c == '[') {
+        terminator = ']';
+      }
+      else if (c == ' ') {
+        terminator = ':';
+      }
+      else {
+        continue;
+      }
+      final int start = i + 1;
+      if (regionMatches(line, start, "error", terminator)) {
+        return PantsOutputMessage.Level.ERROR;
+      }
+      if (regionMatches(line, start, "warn", terminator) || regionMatches(line, start, "warning", terminator)) {
+        result = PantsOutputMessage.Level.WARNING;
+      }
+      else if (result == null && terminator == ']' && regionMatches(line, start, "debug", terminator)) {
+        result = PantsOutputMessage.Level.INFO;
+      }
+    }
+    return result;
+  }
+
+  @Nullable
+  public PantsOutputMessage parseCompilerMessage(@NotNull CharSequence line) {
+    final PantsOutputMessage.Level level = findLevel(line);
+    return level != null ? parseCompilerMessage(line, level) : null;
+  }
+
+  /**
+   * @param level of {@code line} found by {@link #findLevel(CharSequence)}
+   * @return a message if {@code line} points to an existing file
+   */
+  @Nullable
+  public PantsOutputMessage parseCompilerMessage(@NotNull CharSequence line, @NotNull PantsOutputMessage.Level level) {
+    final int length = line.length();
+    int i = indexOf(line, ']') + 1;
+    while (i < length && (Character.isSpaceChar(line.charAt(i)) || line.charAt(i) == '\t')) {
+      ++i;
+    }
+    final int start = i;
+    while (i < length && line.charAt(i) != ' ' && line.charAt(i) != '\n' && line.charAt(i) != ':') {
+      ++i;
+    }
+    int end = i;
+    if (start == end) {
+      return null;
+    }
+    final String filePath = line.subSequence(start, end).toString();
+    if (!fileExists(filePath)) {
+      return null;
+    }
+
+    int lineNumber = 0;
+    i = end + 1;
+    while (i < length && Character.isDigit(line.charAt(i))) {
+      lineNumber = lineNumber * 10 + (line.charAt(i) - '0');
+      ++i;
+    }
+    if (i > end + 1) {
+      lineNumber--;
+      end = i;
+    }
+    return new PantsOutputMessage(start, end, filePath, lineNumber, level);
+  }
+
+  private boolean fileExists(@NotNull String filePath) {
+    Boolean result = myFileExistenceCache.get(filePath);
+    if (result == null) {
+      result = new File(filePath).exists();
+      myFileExistenceCache.put(filePath, result);
+    }
+    return result;
+  }
+
+  private static boolean regionMatches(@NotNull CharSequence line, int offset, @NotNull String word, char terminator) {
+    final int end = offset + word.length();
+    if (end >= line.length() || line.charAt(end) != terminator) {
+      return false;
+    }
+    for (int i = 0; i < word.length(); i++) {
+      if (line.charAt(offset + i) != word.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int indexOf(@NotNull CharSequence line, char c) {
+    for (int i = 0; i < line.length(); i++) {
+      if (line.charAt(i) == c) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
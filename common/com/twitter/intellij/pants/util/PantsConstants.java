@@ -34,6 +34,10 @@ public class PantsConstants {
   public static final String PANTS_COMPILER_OUTPUTS_KEY = "pants.compiler.outputs";
   public static final String PANTS_LIBRARY_EXCLUDES_KEY = "pants.library.excludes";
   public static final String PANTS_TARGET_ADDRESSES_KEY = "pants.target.addresses";
+  // a module component with sources globs of targets
+  public static final String PANTS_TARGET_GLOBS_COMPONENT = "PantsTargetGlobs";
+  // a message of the JPS builder with comma separated addresses of compiled targets
+  public static final String PANTS_COMPILED_TARGETS_MESSAGE = "compiled.targets";
 
   public static Set<String> SUPPORTED_TARGET_TYPES = new THashSet<String>(
     Arrays.asList(
@@ -0,0 +1,136 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.util;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.*;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the closest {@code pants} executable for every directory of a project that was looked up,
+ * including all ancestors visited on the way, so lookups for files in the same tree don't walk up to the working dir again.
+ * <p/>
+ * Entries are dropped by VFS events: creating, deleting, moving or renaming a {@code pants} file drops
+ * the directories under its parent, and deleting, moving or renaming a cached directory drops the directories under it.
+ * Changes of other directories can't change the result of a cached lookup.
+ */
+public class PantsExecutableCache implements Disposable {
+  private static final Object NO_EXECUTABLE = new Object();
+
+  // directory -> pants executable or NO_EXECUTABLE
+  private final ConcurrentMap<VirtualFile, Object> myCache = ContainerUtil.newConcurrentMap();
+
+  @NotNull
+  public static PantsExecutableCache getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, PantsExecutableCache.class);
+  }
+
+  public PantsExecutableCache(@NotNull Project project) {
+    project.getMessageBus().connect(this).subscribe(
+      VirtualFileManager.VFS_CHANGES, new BulkFileListener.Adapter() {
+        @Override
+        public void before(@NotNull List<? extends VFileEvent> events) {
+          // a moved or renamed directory has to be matched by its old path
+          for (VFileEvent event : events) {
+            if (event instanceof VFileMoveEvent || event instanceof VFilePropertyChangeEvent) {
+              invalidate(event);
+            }
+          }
+        }
+
+        @Override
+        public void after(@NotNull List<? extends VFileEvent> events) {
+          for (VFileEvent event : events) {
+            invalidate(event);
+          }
+        }
+      }
+    );
+  }
+
+  @Nullable
+  public VirtualFile findPantsExecutable(@Nullable VirtualFile dir) {
+    if (dir == null) {
+      return null;
+    }
+    final Object cached = myCache.get(dir);
+    if (cached == NO_EXECUTABLE) {
+      return null;
+    }
+    if (cached instanceof VirtualFile && ((VirtualFile)cached).isValid()) {
+      return (VirtualFile)cached;
+    }
+    final VirtualFile pantsFile = dir.findChild(PantsConstants.PANTS);
+    final VirtualFile result = pantsFile != null && !pantsFile.isDirectory() ? pantsFile : findPantsExecutable(dir.getParent());
+    myCache.put(dir, result != null ? result : NO_EXECUTABLE);
+    return result;
+  }
+
+  @TestOnly
+  public boolean isCached(@NotNull VirtualFile dir) {
+    return myCache.containsKey(dir);
+  }
+
+  private void invalidate(@NotNull VFileEvent event) {
+    if (event instanceof VFileCreateEvent) {
+      final VFileCreateEvent createEvent = (VFileCreateEvent)event;
+      if (PantsConstants.PANTS.equals(createEvent.getChildName())) {
+        invalidateUnder(createEvent.getParent());
+      }
+      return;
+    }
+    final VirtualFile file = event.getFile();
+    if (file == null) {
+      return;
+    }
+    if (file.isDirectory()) {
+      if (myCache.containsKey(file)) {
+        invalidateUnder(file);
+      }
+    }
+    else if (isPantsFileEvent(event, file)) {
+      invalidateUnder(file.getParent());
+    }
+  }
+
+  private static boolean isPantsFileEvent(@NotNull VFileEvent event, @NotNull VirtualFile file) {
+    if (event instanceof VFilePropertyChangeEvent) {
+      final VFilePropertyChangeEvent propertyChangeEvent = (VFilePropertyChangeEvent)event;
+      return VirtualFile.PROP_NAME.equals(propertyChangeEvent.getPropertyName()) &&
+             (PantsConstants.PANTS.equals(propertyChangeEvent.getOldValue()) ||
+              PantsConstants.PANTS.equals(propertyChangeEvent.getNewValue()));
+    }
+    return (event instanceof VFileDeleteEvent || event instanceof VFileMoveEvent) && PantsConstants.PANTS.equals(file.getName());
+  }
+
+  private void invalidateUnder(@Nullable VirtualFile dir) {
+    if (dir == null) {
+      return;
+    }
+    for (Iterator<VirtualFile> iterator = myCache.keySet().iterator(); iterator.hasNext(); ) {
+      final VirtualFile cachedDir = iterator.next();
+      if (!cachedDir.isValid() || VfsUtilCore.isAncestor(dir, cachedDir, false)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  @Override
+  public void dispose() {
+    myCache.clear();
+  }
+}
@@ -36,11 +36,13 @@ import com.intellij.util.containers.ContainerUtil;
 import com.twitter.intellij.pants.PantsException;
 import com.twitter.intellij.pants.model.PantsSourceType;
 import com.twitter.intellij.pants.model.PantsTargetAddress;
+import org.jdom.Element;
 import org.jetbrains.annotations.*;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 public class PantsUtil {
@@ -48,6 +50,9 @@ public class PantsUtil {
 
   private static final List<String> PYTHON_PLUGIN_IDS = ContainerUtil.immutableList("PythonCore", "Pythonid");
 
+  // directory -> closest pants executable, see findPantsExecutable(File)
+  private static final ConcurrentMap<File, File> ourPantsExecutables = ContainerUtil.newConcurrentMap();
+
   @Nullable
   public static VirtualFile findBUILDFile(@Nullable VirtualFile vFile) {
     if (vFile == null) {
@@ -93,6 +98,11 @@ public class PantsUtil {
   private static final String PANTS_VERSION_REGEXP = "pants_version: (.+)";
   private static final String PEX_RELATIVE_PATH = ".pants.d/bin/pants.pex";
 
+  private static final String TARGET_GLOBS_TARGET_TAG = "target";
+  private static final String TARGET_GLOBS_GLOB_TAG = "glob";
+  private static final String TARGET_GLOBS_ADDRESS_ATTRIBUTE = "address";
+  private static final String TARGET_GLOBS_VALUE_ATTRIBUTE = "value";
+
   @Nullable
   public static String findPantsVersion(@Nullable VirtualFile workingDir) {
     final VirtualFile pantsIniFile = findPantsIniFile(workingDir);
@@ -143,8 +153,8 @@ public class PantsUtil {
     if (ApplicationManager.getApplication() == null) {
       return null;
     }
-    final VirtualFile buildFile = VirtualFileManager.getInstance().findFileByUrl(VfsUtil.pathToUrl(projectPath));
-    return findPantsExecutable(buildFile);
+    final File pantsExecutable = findPantsExecutable(new File(projectPath));
+    return pantsExecutable != null ? VirtualFileManager.getInstance().findFileByUrl(VfsUtil.pathToUrl(pantsExecutable.getPath())) : null;
   }
 
   @Nullable
@@ -161,24 +171,24 @@ public class PantsUtil {
 
   @Nullable
   public static VirtualFile findPantsWorkingDir(@NotNull Project project) {
-    return findPantsWorkingDir(project.getProjectFile());
+    return findPantsWorkingDir(project, project.getProjectFile());
   }
 
   @Nullable
   public static VirtualFile findPantsWorkingDir(@NotNull PsiFile psiFile) {
     final VirtualFile virtualFile = psiFile.getOriginalFile().getVirtualFile();
-    return virtualFile != null ? findPantsWorkingDir(virtualFile) : findPantsWorkingDir(psiFile.getProject());
+    return virtualFile != null ? findPantsWorkingDir(psiFile.getProject(), virtualFile) : findPantsWorkingDir(psiFile.getProject());
   }
 
   @Nullable
   public static VirtualFile findPantsWorkingDir(@NotNull Module module) {
     final VirtualFile moduleFile = module.getModuleFile();
     if (moduleFile != null) {
-      return findPantsWorkingDir(moduleFile);
+      return findPantsWorkingDir(module.getProject(), moduleFile);
     }
     final ModuleRootManager rootManager = ModuleRootManager.getInstance(module);
     for (VirtualFile contentRoot : rootManager.getContentRoots()) {
-      final VirtualFile pantsWorkingDir = findPantsWorkingDir(contentRoot);
+      final VirtualFile pantsWorkingDir = findPantsWorkingDir(module.getProject(), contentRoot);
       if (pantsWorkingDir != null) {
         return pantsWorkingDir;
       }
@@ -192,6 +202,17 @@ public class PantsUtil {
     return pantsExecutable != null ? pantsExecutable.getParent() : null;
   }
 
+  /**
+   * Same as {@link #findPantsWorkingDir(VirtualFile)} but memoized in {@code project}'s {@link PantsExecutableCache}.
+   */
+  @Nullable
+  public static VirtualFile findPantsWorkingDir(@NotNull Project project, @Nullable VirtualFile file) {
+    if (file == null) return null;
+    final VirtualFile dir = file.isDirectory() ? file : file.getParent();
+    final VirtualFile pantsExecutable = PantsExecutableCache.getInstance(project).findPantsExecutable(dir);
+    return pantsExecutable != null ? pantsExecutable.getParent() : null;
+  }
+
   @Nullable
   public static VirtualFile findPantsExecutable(@Nullable VirtualFile file) {
     if (file == null) return null;
@@ -204,16 +225,38 @@ public class PantsUtil {
     return findPantsExecutable(file.getParent());
   }
 
+  /**
+   * Memoized for every directory visited on the way up. It's also used by the external system and build processes
+   * where there are no VFS events, so hits are checked with {@link File#isFile()} and misses aren't cached.
+   * A {@code pants} executable created under a directory with a cached one is picked up once the cached one is gone.
+   */
   @Nullable
   public static File findPantsExecutable(@Nullable File file) {
     if (file == null) return null;
-    if (file.isDirectory()) {
-      final File pantsFile = new File(file, PantsConstants.PANTS);
-      if (pantsFile.exists() && !pantsFile.isDirectory()) {
-        return pantsFile;
-      }
+    return findPantsExecutableInDir(file.isDirectory() ? file : file.getParentFile());
+  }
+
+  @Nullable
+  private static File findPantsExecutableInDir(@Nullable File dir) {
+    if (dir == null) return null;
+    final File cached = ourPantsExecutables.get(dir);
+    if (cached != null && cached.isFile()) {
+      return cached;
+    }
+    final File pantsFile = new File(dir, PantsConstants.PANTS);
+    final File result = pantsFile.isFile() ? pantsFile : findPantsExecutableInDir(dir.getParentFile());
+    if (result != null) {
+      ourPantsExecutables.put(dir, result);
     }
-    return findPantsExecutable(file.getParentFile());
+    else {
+      ourPantsExecutables.remove(dir);
+    }
+    return result;
+  }
+
+  @TestOnly
+  public static boolean isPantsExecutableCached(@NotNull File dir) {
+    return ourPantsExecutables.containsKey(dir);
   }
 
   public static GeneralCommandLine defaultCommandLine(@NotNull String projectPath) throws PantsException {
@@ -306,6 +349,40 @@ public class PantsUtil {
     );
   }
 
+  /**
+   * Writes sources globs of targets as {@code <target address="..."><glob value="..."/></target>} children of {@code element}
+   * so addresses and globs may contain any characters.
+   */
+  public static void writeTargetGlobs(@NotNull Map<String, ? extends Collection<String>> addressToGlobs, @NotNull Element element) {
+    for (Map.Entry<String, ? extends Collection<String>> entry : new TreeMap<String, Collection<String>>(addressToGlobs).entrySet()) {
+      final Element targetElement = new Element(TARGET_GLOBS_TARGET_TAG).setAttribute(TARGET_GLOBS_ADDRESS_ATTRIBUTE, entry.getKey());
+      for (String glob : entry.getValue()) {
+        targetElement.addContent(new Element(TARGET_GLOBS_GLOB_TAG).setAttribute(TARGET_GLOBS_VALUE_ATTRIBUTE, glob));
+      }
+      element.addContent(targetElement);
+    }
+  }
+
+  @NotNull
+  public static Map<String, List<String>> readTargetGlobs(@Nullable Element element) {
+    final Map<String, List<String>> result = new HashMap<String, List<String>>();
+    if (element == null) {
+      return result;
+    }
+    for (Element targetElement : element.getChildren(TARGET_GLOBS_TARGET_TAG)) {
+      final String address = targetElement.getAttributeValue(TARGET_GLOBS_ADDRESS_ATTRIBUTE);
+      if (StringUtil.isEmpty(address)) {
+        continue;
+      }
+      final List<String> globs = new ArrayList<String>();
+      for (Element globElement : targetElement.getChildren(TARGET_GLOBS_GLOB_TAG)) {
+        ContainerUtil.addIfNotNull(globs, globElement.getAttributeValue(TARGET_GLOBS_VALUE_ATTRIBUTE));
+      }
+      result.put(address, globs);
+    }
+    return result;
+  }
+
   public static boolean isPantsProject(@NotNull Project project) {
     return ContainerUtil.exists(
       ModuleManager.getInstance(project).getModules(),
@@ -342,7 +419,7 @@ public class PantsUtil {
   @Nullable
   public static Module findModuleForBUILDFile(@NotNull Project project, @Nullable final VirtualFile file) {
     if (file == null || !isBUILDFileName(file.getName())) return null;
-    final VirtualFile workingDir = PantsUtil.findPantsWorkingDir(project.getProjectFile());
+    final VirtualFile workingDir = PantsUtil.findPantsWorkingDir(project);
     if (workingDir == null) {
       return null;
     }
@@ -421,6 +498,18 @@ public class PantsUtil {
     ExternalSystemUtil.refreshProjects(specBuilder);
   }
 
+  /**
+   * Refreshes only one linked project, e.g. after a change of a single BUILD file.
+   */
+  public static void refreshProject(@NotNull Project project, @NotNull String externalProjectPath) {
+    if (!PantsUtil.isPantsProject(project)) {
+      return;
+    }
+    final ProgressExecutionMode executionMode = ApplicationManager.getApplication().isUnitTestMode() ?
+                                                ProgressExecutionMode.MODAL_SYNC : ProgressExecutionMode.IN_BACKGROUND_ASYNC;
+    ExternalSystemUtil.refreshProject(project, PantsConstants.SYSTEM_ID, externalProjectPath, false, executionMode);
+  }
+
   @Nullable
   public static VirtualFile findFileByAbsoluteOrRelativePath(
     @NotNull String fileOrDirPath,
@@ -11,13 +11,17 @@ import com.intellij.openapi.util.Condition;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.Processor;
 import com.intellij.util.containers.ContainerUtil;
 import com.twitter.intellij.pants.jps.incremental.model.JpsPantsProjectExtension;
 import com.twitter.intellij.pants.jps.incremental.model.PantsBuildTarget;
 import com.twitter.intellij.pants.jps.incremental.model.PantsBuildTargetType;
 import com.twitter.intellij.pants.jps.incremental.model.PantsSourceRootDescriptor;
+import com.twitter.intellij.pants.jps.incremental.report.PantsBuildPhaseReport;
 import com.twitter.intellij.pants.jps.incremental.serialization.PantsJpsProjectExtensionSerializer;
+import com.twitter.intellij.pants.jps.incremental.worker.PantsCompileWorker;
 import com.twitter.intellij.pants.jps.util.PantsJpsUtil;
+import com.twitter.intellij.pants.util.PantsCompilerOutputParser;
 import com.twitter.intellij.pants.util.PantsConstants;
 import com.twitter.intellij.pants.util.PantsOutputMessage;
 import com.twitter.intellij.pants.util.PantsUtil;
@@ -29,22 +33,25 @@ import org.jetbrains.jps.builders.FileProcessor;
 import org.jetbrains.jps.builders.java.JavaBuilderUtil;
 import org.jetbrains.jps.incremental.CompileContext;
 import org.jetbrains.jps.incremental.ProjectBuildException;
+import org.jetbrains.jps.incremental.StopBuildException;
 import org.jetbrains.jps.incremental.TargetBuilder;
 import org.jetbrains.jps.incremental.java.JavaBuilder;
 import org.jetbrains.jps.incremental.messages.BuildMessage;
 import org.jetbrains.jps.incremental.messages.CompilerMessage;
+import org.jetbrains.jps.incremental.messages.CustomBuilderMessage;
 import org.jetbrains.jps.incremental.messages.ProgressMessage;
 import org.jetbrains.jps.model.JpsProject;
+import org.jetbrains.jps.model.module.JpsModule;
+import org.jetbrains.jps.model.serialization.JpsModelSerializationDataService;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 
 public class PantsTargetBuilder extends TargetBuilder<PantsSourceRootDescriptor, PantsBuildTarget> {
   private static final Logger LOG = Logger.getInstance(PantsTargetBuilder.class);
+  private static final long CANCEL_CHECK_INTERVAL_MS = 200;
+  private static final String BUILD_TIMINGS_LOG = "pants-build-timings.jsonl";
 
   public PantsTargetBuilder() {
     super(Collections.singletonList(PantsBuildTargetType.INSTANCE));
@@ -77,13 +84,16 @@ public class PantsTargetBuilder extends TargetBuilder<PantsSourceRootDescriptor,
   ) throws ProjectBuildException, IOException {
     final String pantsExecutable = target.getPantsExecutable();
 
-    if (!hasDirtyTargets(holder) && !JavaBuilderUtil.isForcedRecompilationAllJavaModules(context)) {
+    final ChangedTargets changedTargets = findChangedTargets(holder);
+    if (!changedTargets.hasNonGenChanges() && !JavaBuilderUtil.isForcedRecompilationAllJavaModules(context)) {
       context.processMessage(new CompilerMessage(PantsConstants.PANTS, BuildMessage.Kind.INFO, "No changes to compile."));
+      reportCompiledTargets(Collections.<String>emptySet(), context);
       return;
     }
 
     final GeneralCommandLine commandLine = PantsUtil.defaultCommandLine(pantsExecutable);
     final Set<String> allNonGenTargets = filterGenTargets(target.getTargetAddresses());
+    final Set<String> targetsToCompile;
     if (JavaBuilderUtil.isForcedRecompilationAllJavaModules(context)) {
       final String recompileMessage = String.format("Recompiling all %s targets", allNonGenTargets.size());
       context.processMessage(
@@ -91,15 +101,18 @@ public class PantsTargetBuilder extends TargetBuilder<PantsSourceRootDescriptor,
       );
       context.processMessage(new ProgressMessage(recompileMessage));
       commandLine.addParameters("clean-all", "compile");
-      for (String targetAddress : allNonGenTargets) {
-        commandLine.addParameter(targetAddress);
-      }
+      targetsToCompile = allNonGenTargets;
     } else {
-      // Pants does compile incrementally and it appeared calling Pants for only findTargetAddresses(holder) targets
+      // Pants does compile incrementally and it appeared calling Pants for only changed targets
       // isn't very beneficial. To simplify the plugin we are going to rely on Pants and pass all targets in the project.
       // We can't use project settings because a project can be generated from a script file or is opened with dependeees.
-      final Set<String> changedNonGenTargets = filterGenTargets(findTargetAddresses(holder));
-      Set<String> targetsToCompile = null;
+      final Set<String> changedNonGenTargets = filterGenTargets(changedTargets.getAddresses());
+      context.processMessage(
+        new CompilerMessage(
+          PantsConstants.PANTS, BuildMessage.Kind.INFO,
+          String.format("%s changed files belong to %s targets", changedTargets.getFilesCount(), changedNonGenTargets.size())
+        )
+      );
       String recompileMessage = null;
       if (changedNonGenTargets.size() == 1) {
         recompileMessage = String.format("Recompiling %s", changedNonGenTargets.iterator().next());
@@ -113,14 +126,22 @@ public class PantsTargetBuilder extends TargetBuilder<PantsSourceRootDescriptor,
       ));
       context.processMessage(new ProgressMessage(recompileMessage));
       commandLine.addParameters("compile");
-      for (String targetAddress : targetsToCompile) {
-        commandLine.addParameter(targetAddress);
-      }
+    }
+    for (String targetAddress : targetsToCompile) {
+      commandLine.addParameter(targetAddress);
+    }
+
+    commandLine.addParameters("--no-colors");
+    // file existence checks are cached for the whole build
+    final PantsCompilerOutputParser outputParser = new PantsCompilerOutputParser();
+    final PantsBuildPhaseReport phaseReport = new PantsBuildPhaseReport(targetsToCompile.size());
+    if (runInWorker(commandLine, target, outputParser, phaseReport, context)) {
+      reportCompiledTargets(targetsToCompile, context);
+      return;
     }
 
     final Process process;
     try {
-      commandLine.addParameters("--no-colors");
       process = commandLine.createProcess();
     }
     catch (ExecutionException e) {
@@ -132,30 +153,141 @@ public class PantsTargetBuilder extends TargetBuilder<PantsSourceRootDescriptor,
         @Override
         public void onTextAvailable(ProcessEvent event, Key outputType) {
           super.onTextAvailable(event, outputType);
-          context.processMessage(getCompilerMessage(event, outputType));
+          phaseReport.processLine(event.getText());
+          context.processMessage(getCompilerMessage(outputParser, event.getText(), outputType));
         }
       }
     );
-    final ProcessOutput processOutput = processHandler.runProcess();
-    processOutput.checkSuccess(LOG);
+    processHandler.startNotify();
+    while (!processHandler.waitFor(CANCEL_CHECK_INTERVAL_MS)) {
+      if (context.getCancelStatus().isCanceled()) {
+        // Pants spawns nailgun and compiler processes so destroying only the pants process isn't enough.
+        OSProcessUtil.killProcessTree(process);
+        processHandler.waitFor();
+        reportCanceled(context);
+      }
+    }
+    checkExitCode(processHandler.getExitCode());
+    reportPhases(phaseReport, context);
+    reportCompiledTargets(targetsToCompile, context);
+  }
+
+  private static void checkExitCode(@Nullable Integer exitCode) {
+    if (exitCode == null || exitCode != 0) {
+      LOG.warn("Pants compile finished with exit code " + exitCode);
+    }
   }
 
-  private boolean hasDirtyTargets(DirtyFilesHolder<PantsSourceRootDescriptor, PantsBuildTarget> holder) throws IOException {
-    final Ref<Boolean> hasDirtyTargets = Ref.create(false);
+  /**
+   * Reports how long Pants goals took and appends the timings to a log in the build data directory.
+   */
+  private static void reportPhases(@NotNull PantsBuildPhaseReport phaseReport, @NotNull CompileContext context) {
+    context.processMessage(new CompilerMessage(PantsConstants.PANTS, BuildMessage.Kind.INFO, phaseReport.finish()));
+    final File dataStorageRoot = context.getProjectDescriptor().dataManager.getDataPaths().getDataStorageRoot();
+    phaseReport.appendToLog(new File(dataStorageRoot, BUILD_TIMINGS_LOG));
+  }
+
+  /**
+   * Tells the IDE which targets may have new compiler outputs, e.g. to link all their classes again in classes directories
+   * of run configurations. Outputs of other targets are still checked for changes made outside of the build.
+   */
+  private static void reportCompiledTargets(@NotNull Collection<String> targetAddresses, @NotNull CompileContext context) {
+    context.processMessage(
+      new CustomBuilderMessage(PantsConstants.PANTS, PantsConstants.PANTS_COMPILED_TARGETS_MESSAGE, StringUtil.join(targetAddresses, ","))
+    );
+  }
+
+  /**
+   * Files stay dirty after a canceled build so the next build will pick them up.
+   */
+  private static void reportCanceled(@NotNull CompileContext context) throws ProjectBuildException {
+    context.processMessage(new CompilerMessage(PantsConstants.PANTS, BuildMessage.Kind.INFO, "Pants compile was canceled."));
+    throw new StopBuildException();
+  }
+
+  /**
+   * @return {@code false} if there is no running Pants worker and the command should be executed in a one-shot process.
+   */
+  private boolean runInWorker(
+    @NotNull GeneralCommandLine commandLine,
+    @NotNull PantsBuildTarget target,
+    @NotNull final PantsCompilerOutputParser outputParser,
+    @NotNull final PantsBuildPhaseReport phaseReport,
+    @NotNull final CompileContext context
+  ) throws ProjectBuildException {
+    final File pantsExecutable = findPantsExecutable(target.getPantsExecutable());
+    if (pantsExecutable == null || !PantsCompileWorker.isEnabled()) {
+      return false;
+    }
+    final File dataStorageRoot = context.getProjectDescriptor().dataManager.getDataPaths().getDataStorageRoot();
+    final PantsCompileWorker worker = PantsCompileWorker.findOrStartWorker(
+      pantsExecutable, dataStorageRoot, target.getTargetAddresses(), findModuleFiles(context.getProjectDescriptor().getProject())
+    );
+    if (worker == null) {
+      return false;
+    }
+    // the output of a failed request is already reported, so it can't be repeated by a one-shot process
+    final Ref<Boolean> outputStreamed = Ref.create(Boolean.FALSE);
+    final int exitCode;
+    try {
+      exitCode = worker.execute(
+        commandLine.getParametersList().getList(),
+        new Processor<String>() {
+          @Override
+          public boolean process(String line) {
+            outputStreamed.set(Boolean.TRUE);
+            phaseReport.processLine(line);
+            context.processMessage(getCompilerMessage(outputParser, line, ProcessOutputTypes.STDOUT));
+            return true;
+          }
+        },
+        context.getCancelStatus()
+      );
+    }
+    catch (IOException e) {
+      if (context.getCancelStatus().isCanceled()) {
+        reportCanceled(context);
+      }
+      if (outputStreamed.get()) {
+        throw new ProjectBuildException("Pants worker failed: " + e.getMessage(), e);
+      }
+      LOG.warn("Pants worker failed. Falling back to a one-shot Pants process.", e);
+      return false;
+    }
+    checkExitCode(exitCode);
+    reportPhases(phaseReport, context);
+    return true;
+  }
+
+  @NotNull
+  private static List<File> findModuleFiles(@NotNull JpsProject jpsProject) {
+    final List<File> result = new ArrayList<File>();
+    for (JpsModule module : jpsProject.getModules()) {
+      final File baseDirectory = JpsModelSerializationDataService.getBaseDirectory(module);
+      if (baseDirectory != null) {
+        result.add(new File(baseDirectory, module.getName() + ".iml"));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Maps each dirty file to targets whose sources globs match it in a single pass over {@code holder}.
+   */
+  @NotNull
+  private ChangedTargets findChangedTargets(@NotNull DirtyFilesHolder<PantsSourceRootDescriptor, PantsBuildTarget> holder)
+    throws IOException {
+    final ChangedTargets result = new ChangedTargets();
     holder.processDirtyFiles(
       new FileProcessor<PantsSourceRootDescriptor, PantsBuildTarget>() {
         @Override
         public boolean apply(PantsBuildTarget target, File file, PantsSourceRootDescriptor root) throws IOException {
-          if (!PantsJpsUtil.containsGenTarget(root.getTargetAddresses())) {
-            hasDirtyTargets.set(true);
-            return false;
-          }
+          result.add(root.findOwnerAddresses(file), !PantsJpsUtil.containsGenTarget(root.getTargetAddresses()));
           return true;
         }
       }
     );
-    return hasDirtyTargets.get();
-
+    return result;
   }
 
   private Set<String> filterGenTargets(@NotNull Collection<String> addresses) {
@@ -172,29 +304,15 @@ public class PantsTargetBuilder extends TargetBuilder<PantsSourceRootDescriptor,
     );
   }
 
-  @NotNull
-  private Set<String> findTargetAddresses(@NotNull DirtyFilesHolder<PantsSourceRootDescriptor, PantsBuildTarget> holder)
-    throws IOException {
-    final Set<String> addresses = new HashSet<String>();
-    holder.processDirtyFiles(
-      new FileProcessor<PantsSourceRootDescriptor, PantsBuildTarget>() {
-        @Override
-        public boolean apply(PantsBuildTarget target, File file, PantsSourceRootDescriptor root) throws IOException {
-          addresses.addAll(root.getTargetAddresses());
-          return true;
-        }
-      }
-    );
-    return addresses;
-  }
 
   @NotNull
-  public CompilerMessage getCompilerMessage(ProcessEvent event, Key<?> outputType) {
-    final PantsOutputMessage message = PantsOutputMessage.parseCompilerMessage(event.getText());
+  public CompilerMessage getCompilerMessage(@NotNull PantsCompilerOutputParser parser, @NotNull String text, Key<?> outputType) {
+    final PantsOutputMessage.Level level = PantsCompilerOutputParser.findLevel(text);
+    final PantsOutputMessage message = level != null ? parser.parseCompilerMessage(text, level) : null;
     if (message == null) {
-      final String outputMessage = StringUtil.trim(event.getText());
-      final boolean isError = PantsOutputMessage.isError(outputMessage) || StringUtil.startsWith(outputMessage, "FAILURE");
-      final boolean isWarning = PantsOutputMessage.isWarning(outputMessage);
+      final String outputMessage = StringUtil.trim(text);
+      final boolean isError = level == PantsOutputMessage.Level.ERROR || StringUtil.startsWith(outputMessage, "FAILURE");
+      final boolean isWarning = level == PantsOutputMessage.Level.WARNING;
       return new CompilerMessage(
         PantsConstants.PANTS,
         isError ? BuildMessage.Kind.ERROR : isWarning ? BuildMessage.Kind.WARNING : BuildMessage.Kind.INFO,
@@ -209,7 +327,7 @@ public class PantsTargetBuilder extends TargetBuilder<PantsSourceRootDescriptor,
     return new CompilerMessage(
       PantsConstants.PANTS,
       kind,
-      event.getText().substring(message.getEnd()),
+      text.substring(message.getEnd()),
       message.getFilePath(),
       -1L, -1L, -1L, message.getLineNumber() + 1, -1L
     );
@@ -219,4 +337,29 @@ public class PantsTargetBuilder extends TargetBuilder<PantsSourceRootDescriptor,
   private File findPantsExecutable(@NotNull String path) {
     return PantsUtil.findPantsExecutable(new File(path));
   }
+
+  private static class ChangedTargets {
+    private final Set<String> myAddresses = new HashSet<String>();
+    private int myFilesCount = 0;
+    private boolean myHasNonGenChanges = false;
+
+    public void add(@NotNull Collection<String> ownerAddresses, boolean isNonGen) {
+      myAddresses.addAll(ownerAddresses);
+      myFilesCount++;
+      myHasNonGenChanges |= isNonGen;
+    }
+
+    @NotNull
+    public Set<String> getAddresses() {
+      return myAddresses;
+    }
+
+    public int getFilesCount() {
+      return myFilesCount;
+    }
+
+    public boolean hasNonGenChanges() {
+      return myHasNonGenChanges;
+    }
+  }
 }
@@ -9,6 +9,8 @@ import org.jetbrains.jps.model.JpsElement;
 import org.jetbrains.jps.model.JpsElementChildRole;
 import org.jetbrains.jps.model.ex.JpsElementChildRoleBase;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public interface JpsPantsModuleExtension extends JpsElement {
@@ -19,6 +21,14 @@ public interface JpsPantsModuleExtension extends JpsElement {
 
   void setTargetAddresses(@NotNull Set<String> addresses);
 
+  /**
+   * @return absolute sources globs for each target address. Empty for projects imported by older versions of the plugin.
+   */
+  @NotNull
+  Map<String, List<String>> getTargetGlobs();
+
+  void setTargetGlobs(@NotNull Map<String, List<String>> targetGlobs);
+
   /**
    * @return path to a linked BUILD file or folder that contains it
    */
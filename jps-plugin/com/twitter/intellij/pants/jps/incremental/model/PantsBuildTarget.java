@@ -73,12 +73,15 @@ public class PantsBuildTarget extends BuildTarget<PantsSourceRootDescriptor> {
           final JpsPantsModuleExtension moduleExtension = PantsJpsModelSerializerExtension.findPantsModuleExtension(target.getModule());
           final Set<String> targetAddresses = moduleExtension != null ?
                                               moduleExtension.getTargetAddresses() : Collections.<String>emptySet();
+          final Map<String, List<String>> targetGlobs = moduleExtension != null ?
+                                                        moduleExtension.getTargetGlobs() : Collections.<String, List<String>>emptyMap();
           final List<JavaSourceRootDescriptor> descriptors = target.computeRootDescriptors(model, index, ignoredFileIndex, dataPaths);
           for (JavaSourceRootDescriptor javaSourceRootDescriptor : descriptors) {
             result.add(
               new PantsSourceRootDescriptor(
                 PantsBuildTarget.this,
                 targetAddresses,
+                targetGlobs,
                 javaSourceRootDescriptor.getRootFile(),
                 javaSourceRootDescriptor.isGenerated(),
                 javaSourceRootDescriptor.getExcludedRoots()
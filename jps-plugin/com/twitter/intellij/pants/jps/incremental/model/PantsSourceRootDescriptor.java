@@ -4,11 +4,13 @@
 package com.twitter.intellij.pants.jps.incremental.model;
 
 import com.intellij.openapi.util.io.FileUtil;
+import com.twitter.intellij.pants.jps.util.PantsSourceGlobMatcher;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jps.builders.BuildRootDescriptor;
 
 import java.io.File;
-import java.util.Set;
+import java.util.*;
 
 public class PantsSourceRootDescriptor extends BuildRootDescriptor {
   @NotNull
@@ -18,17 +20,23 @@ public class PantsSourceRootDescriptor extends BuildRootDescriptor {
   private final Set<File> myExcludes;
   private final Set<String> myTargetAddress;
   @NotNull
+  private final Map<String, List<String>> myTargetGlobs;
+  @NotNull
   private final PantsBuildTarget myTarget;
+  @Nullable
+  private volatile Map<String, PantsSourceGlobMatcher> myGlobMatchers;
 
   public PantsSourceRootDescriptor(
     @NotNull PantsBuildTarget target,
     @NotNull Set<String> targetAddress,
+    @NotNull Map<String, List<String>> targetGlobs,
     @NotNull File root,
     boolean isGenerated,
     @NotNull Set<File> excludes
   ) {
     myTarget = target;
     myTargetAddress = targetAddress;
+    myTargetGlobs = targetGlobs;
     myRoot = root;
     myGeneratedSources = isGenerated;
     myExcludes = excludes;
@@ -39,6 +47,40 @@ public class PantsSourceRootDescriptor extends BuildRootDescriptor {
     return myTargetAddress;
   }
 
+  /**
+   * @return addresses of targets whose sources globs match {@code file}.
+   * All addresses of the root if the globs are unknown or none of them matches.
+   */
+  @NotNull
+  public Collection<String> findOwnerAddresses(@NotNull File file) {
+    if (myTargetAddress.size() <= 1) {
+      return myTargetAddress;
+    }
+    final List<String> result = new ArrayList<String>(1);
+    for (Map.Entry<String, PantsSourceGlobMatcher> entry : getGlobMatchers().entrySet()) {
+      if (entry.getValue().matches(file)) {
+        result.add(entry.getKey());
+      }
+    }
+    return result.isEmpty() ? myTargetAddress : result;
+  }
+
+  @NotNull
+  private Map<String, PantsSourceGlobMatcher> getGlobMatchers() {
+    Map<String, PantsSourceGlobMatcher> result = myGlobMatchers;
+    if (result == null) {
+      result = new HashMap<String, PantsSourceGlobMatcher>();
+      for (String address : myTargetAddress) {
+        final List<String> globs = myTargetGlobs.get(address);
+        if (globs != null && !globs.isEmpty()) {
+          result.put(address, new PantsSourceGlobMatcher(globs));
+        }
+      }
+      myGlobMatchers = result;
+    }
+    return result;
+  }
+
   @NotNull
   @Override
   public Set<File> getExcludedRoots() {
@@ -81,6 +123,7 @@ public class PantsSourceRootDescriptor extends BuildRootDescriptor {
     if (!myRoot.equals(that.myRoot)) return false;
     if (!myExcludes.equals(that.myExcludes)) return false;
     if (myTargetAddress != null ? !myTargetAddress.equals(that.myTargetAddress) : that.myTargetAddress != null) return false;
+    if (!myTargetGlobs.equals(that.myTargetGlobs)) return false;
     return myTarget.equals(that.myTarget);
   }
 
@@ -90,6 +133,7 @@ public class PantsSourceRootDescriptor extends BuildRootDescriptor {
     result = 31 * result + (myGeneratedSources ? 1 : 0);
     result = 31 * result + myExcludes.hashCode();
     result = 31 * result + (myTargetAddress != null ? myTargetAddress.hashCode() : 0);
+    result = 31 * result + myTargetGlobs.hashCode();
     result = 31 * result + myTarget.hashCode();
     return result;
   }
@@ -7,15 +7,28 @@ import com.twitter.intellij.pants.jps.incremental.model.JpsPantsModuleExtension;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jps.model.ex.JpsElementBase;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class JpsPantsModuleExtensionImpl extends JpsElementBase<JpsPantsModuleExtensionImpl> implements JpsPantsModuleExtension {
   private String myConfigPath;
   private Set<String> myTargetAddresses;
+  private Map<String, List<String>> myTargetGlobs;
 
   public JpsPantsModuleExtensionImpl(@NotNull String configPath, @NotNull Set<String> address) {
+    this(configPath, address, Collections.<String, List<String>>emptyMap());
+  }
+
+  public JpsPantsModuleExtensionImpl(
+    @NotNull String configPath,
+    @NotNull Set<String> address,
+    @NotNull Map<String, List<String>> targetGlobs
+  ) {
     myConfigPath = configPath;
     myTargetAddresses = address;
+    myTargetGlobs = targetGlobs;
   }
 
   @NotNull
@@ -29,6 +42,17 @@ public class JpsPantsModuleExtensionImpl extends JpsElementBase<JpsPantsModuleEx
     myTargetAddresses = addresses;
   }
 
+  @NotNull
+  @Override
+  public Map<String, List<String>> getTargetGlobs() {
+    return myTargetGlobs;
+  }
+
+  @Override
+  public void setTargetGlobs(@NotNull Map<String, List<String>> targetGlobs) {
+    myTargetGlobs = targetGlobs;
+  }
+
   @NotNull
   @Override
   public String getConfigPath() {
@@ -43,12 +67,13 @@ public class JpsPantsModuleExtensionImpl extends JpsElementBase<JpsPantsModuleEx
   @NotNull
   @Override
   public JpsPantsModuleExtensionImpl createCopy() {
-    return new JpsPantsModuleExtensionImpl(myConfigPath, myTargetAddresses);
+    return new JpsPantsModuleExtensionImpl(myConfigPath, myTargetAddresses, myTargetGlobs);
   }
 
   @Override
   public void applyChanges(@NotNull JpsPantsModuleExtensionImpl modified) {
     modified.setConfigPath(getConfigPath());
     modified.setTargetAddresses(getTargetAddresses());
+    modified.setTargetGlobs(getTargetGlobs());
   }
 }
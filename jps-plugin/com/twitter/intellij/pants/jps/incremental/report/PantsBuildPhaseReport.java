@@ -0,0 +1,188 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.jps.incremental.report;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Times Pants goals and tasks by their headers in the output, e.g.
+ * <pre>
+ * 17:35:55 00:00   [compile]
+ * 17:35:55 00:00     [jvm]
+ * 17:35:55 00:00       [jvm-compilers]
+ * </pre>
+ * Each header is timestamped when it's received. A phase lasts until the next header of the same or an outer level.
+ */
+public class PantsBuildPhaseReport {
+  private static final Logger LOG = Logger.getInstance(PantsBuildPhaseReport.class);
+
+  private static final Pattern HEADER_PATTERN = Pattern.compile("\\d\\d:\\d\\d:\\d\\d \\d\\d:\\d\\d( +)\\[([\\w\\-]+)\\]\\s*");
+  private static final Pattern INVALIDATED_PATTERN = Pattern.compile("\\s*Invalidated (\\d+) targets?\\.?\\s*");
+  private static final Pattern COMPILING_PATTERN = Pattern.compile("\\s*Compiling (\\d+) \\w+ sources? in (\\d+) targets?.*");
+
+  private static final Set<String> COMPILER_TASKS = ContainerUtil.newHashSet("zinc", "jmake", "javac", "scalac", "apt");
+  static final int MAX_LOG_ENTRIES = 500;
+  // the log is trimmed to MAX_LOG_ENTRIES only once it grows over this size so most builds just append a line
+  static final long MAX_LOG_SIZE = 512 * 1024;
+
+  private final long myStartTime = System.currentTimeMillis();
+  private final int myRequestedTargets;
+  // depth -> name and start time of a phase that isn't finished yet
+  private final List<String> myOpenPhases = new ArrayList<String>();
+  private final List<Long> myOpenPhaseStarts = new ArrayList<Long>();
+  private final Map<String, Long> myGoalDurations = new LinkedHashMap<String, Long>();
+  private final Map<String, Long> myCompilerDurations = new LinkedHashMap<String, Long>();
+  private int myCompilerRuns = 0;
+  private int myInvalidatedTargets = 0;
+  private int myCompiledTargets = 0;
+  private int myCompiledSources = 0;
+
+  public PantsBuildPhaseReport(int requestedTargets) {
+    myRequestedTargets = requestedTargets;
+  }
+
+  public void processLine(@NotNull String line) {
+    // cheap checks before matching regexps for every line
+    if (line.length() > 16 && line.charAt(2) == ':' && line.indexOf('[') > 0) {
+      final Matcher matcher = HEADER_PATTERN.matcher(line);
+      if (matcher.matches()) {
+        startPhase(matcher.group(1).length() / 2, matcher.group(2), System.currentTimeMillis());
+      }
+    }
+    else if (line.contains(" target")) {
+      final Matcher invalidated = INVALIDATED_PATTERN.matcher(line);
+      if (invalidated.matches()) {
+        myInvalidatedTargets += StringUtil.parseInt(invalidated.group(1), 0);
+        return;
+      }
+      final Matcher compiling = COMPILING_PATTERN.matcher(line);
+      if (compiling.matches()) {
+        myCompiledSources += StringUtil.parseInt(compiling.group(1), 0);
+        myCompiledTargets += StringUtil.parseInt(compiling.group(2), 0);
+      }
+    }
+  }
+
+  private void startPhase(int depth, @NotNull String name, long time) {
+    finishPhases(depth, time);
+    while (myOpenPhases.size() < depth) {
+      myOpenPhases.add(null);
+      myOpenPhaseStarts.add(time);
+    }
+    myOpenPhases.add(name);
+    myOpenPhaseStarts.add(time);
+    if (COMPILER_TASKS.contains(name)) {
+      myCompilerRuns++;
+    }
+  }
+
+  private void finishPhases(int depth, long time) {
+    for (int i = myOpenPhases.size() - 1; i >= depth; i--) {
+      final String name = myOpenPhases.remove(i);
+      final long duration = time - myOpenPhaseStarts.remove(i);
+      if (name == null) {
+        continue;
+      }
+      // depth 0 is [main], depth 1 are goals
+      if (i == 1) {
+        addDuration(myGoalDurations, name, duration);
+      }
+      else if (COMPILER_TASKS.contains(name)) {
+        addDuration(myCompilerDurations, name, duration);
+      }
+    }
+  }
+
+  private static void addDuration(@NotNull Map<String, Long> durations, @NotNull String name, long duration) {
+    final Long previous = durations.get(name);
+    durations.put(name, previous != null ? previous + duration : duration);
+  }
+
+  /**
+   * Finishes all open phases.
+   *
+   * @return a human readable summary
+   */
+  @NotNull
+  public String finish() {
+    finishPhases(0, System.currentTimeMillis());
+    final StringBuilder result = new StringBuilder();
+    result.append(String.format("Pants build took %s", formatDuration(System.currentTimeMillis() - myStartTime)));
+    result.append(String.format("\nTargets: %s requested, %s invalidated, %s compiled (%s sources)",
+                                myRequestedTargets, myInvalidatedTargets, myCompiledTargets, myCompiledSources));
+    appendDurations(result, "Goals", myGoalDurations);
+    appendDurations(result, String.format("Compilers (%s runs)", myCompilerRuns), myCompilerDurations);
+    return result.toString();
+  }
+
+  private static void appendDurations(@NotNull StringBuilder builder, @NotNull String title, @NotNull Map<String, Long> durations) {
+    if (durations.isEmpty()) {
+      return;
+    }
+    builder.append('\n').append(title).append(':');
+    for (Map.Entry<String, Long> entry : durations.entrySet()) {
+      builder.append(' ').append(entry.getKey()).append(' ').append(formatDuration(entry.getValue())).append(',');
+    }
+    builder.setLength(builder.length() - 1);
+  }
+
+  @NotNull
+  private static String formatDuration(long millis) {
+    return String.format("%.1fs", millis / 1000.0);
+  }
+
+  /**
+   * Appends the report as a JSON line to {@code logFile}.
+   * Once the log is over {@link #MAX_LOG_SIZE} bytes only the last {@link #MAX_LOG_ENTRIES} entries are kept.
+   */
+  public void appendToLog(@NotNull File logFile) {
+    try {
+      FileUtil.writeToFile(logFile, toJson() + "\n", true);
+      if (logFile.length() > MAX_LOG_SIZE) {
+        final List<String> lines = FileUtil.loadLines(logFile);
+        final List<String> lastLines = lines.subList(Math.max(0, lines.size() - MAX_LOG_ENTRIES), lines.size());
+        FileUtil.writeToFile(logFile, StringUtil.join(lastLines, "\n") + "\n");
+      }
+    }
+    catch (IOException e) {
+      LOG.warn("Failed to write Pants build timings to " + logFile, e);
+    }
+  }
+
+  @NotNull
+  private String toJson() {
+    final long endTime = System.currentTimeMillis();
+    return "{" +
+           "\"start\":" + myStartTime + "," +
+           "\"duration\":" + (endTime - myStartTime) + "," +
+           "\"requested_targets\":" + myRequestedTargets + "," +
+           "\"invalidated_targets\":" + myInvalidatedTargets + "," +
+           "\"compiled_targets\":" + myCompiledTargets + "," +
+           "\"compiled_sources\":" + myCompiledSources + "," +
+           "\"compiler_runs\":" + myCompilerRuns + "," +
+           "\"goals\":" + toJson(myGoalDurations) + "," +
+           "\"compilers\":" + toJson(myCompilerDurations) +
+           "}";
+  }
+
+  @NotNull
+  private static String toJson(@NotNull Map<String, Long> durations) {
+    final List<String> entries = new ArrayList<String>(durations.size());
+    for (Map.Entry<String, Long> entry : durations.entrySet()) {
+      // names are matched by [\w\-]+ so they don't need escaping
+      entries.add("\"" + entry.getKey() + "\":" + entry.getValue());
+    }
+    return "{" + StringUtil.join(entries, ",") + "}";
+  }
+}
@@ -6,18 +6,21 @@ package com.twitter.intellij.pants.jps.incremental.serialization;
 import com.intellij.openapi.util.text.StringUtil;
 import com.twitter.intellij.pants.jps.incremental.model.impl.JpsPantsModuleExtensionImpl;
 import com.twitter.intellij.pants.util.PantsConstants;
+import com.twitter.intellij.pants.util.PantsUtil;
 import com.twitter.intellij.pants.jps.incremental.model.JpsPantsModuleExtension;
 import org.jdom.Element;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jps.model.module.JpsModule;
+import org.jetbrains.jps.model.serialization.JDomSerializationUtil;
 import org.jetbrains.jps.model.serialization.JpsModelSerializerExtension;
 import org.jetbrains.jps.model.serialization.JpsProjectExtensionSerializer;
 
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class PantsJpsModelSerializerExtension extends JpsModelSerializerExtension {
@@ -44,7 +47,10 @@ public class PantsJpsModelSerializerExtension extends JpsModelSerializerExtensio
     final String targetAddressesValue = StringUtil.nullize(rootElement.getAttributeValue(PantsConstants.PANTS_TARGET_ADDRESSES_KEY));
     if (PantsConstants.PANTS.equals(externalSystemId) && targetAddressesValue != null && linkedProjectPath != null) {
       final Set<String> targetAddresses = new HashSet<String>(StringUtil.split(targetAddressesValue, ","));
-      final JpsPantsModuleExtensionImpl moduleExtensionElement = new JpsPantsModuleExtensionImpl(linkedProjectPath, targetAddresses);
+      final Map<String, List<String>> targetGlobs =
+        PantsUtil.readTargetGlobs(JDomSerializationUtil.findComponent(rootElement, PantsConstants.PANTS_TARGET_GLOBS_COMPONENT));
+      final JpsPantsModuleExtensionImpl moduleExtensionElement =
+        new JpsPantsModuleExtensionImpl(linkedProjectPath, targetAddresses, targetGlobs);
       module.getContainer().setChild(JpsPantsModuleExtension.ROLE, moduleExtensionElement);
     }
   }
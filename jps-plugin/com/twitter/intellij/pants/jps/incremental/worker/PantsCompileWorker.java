@@ -0,0 +1,462 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.jps.incremental.worker;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.Processor;
+import com.intellij.util.execution.ParametersListUtil;
+import com.twitter.intellij.pants.model.PantsTargetAddress;
+import com.twitter.intellij.pants.util.PantsConstants;
+import com.twitter.intellij.pants.util.PantsUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jps.api.CanceledStatus;
+import org.jetbrains.jps.service.SharedThreadPool;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Future;
+
+/**
+ * A client for a long-lived Pants worker process that serves compile requests over a local socket.
+ * <p/>
+ * The worker is opt-in: it's started only if the build process has {@code -Dpants.jps.worker.command=<command>},
+ * e.g. a nailgun-style runner that keeps Pants warm. The command is started in the Pants working dir
+ * and detached from the build process, because IntelliJ starts a new build process for every Make.
+ * <p/>
+ * The protocol is line based and UTF-8 encoded:
+ * <ul>
+ * <li>once listening the worker prints {@code PANTS_WORKER_PORT=<port>} to its stdout
+ * which is redirected to {@code $PANTS_WORKER_LOG}</li>
+ * <li>a request is a single line of tab separated Pants arguments, backslashes, tabs and line breaks within
+ * an argument are escaped as {@code \\}, {@code \t}, {@code \n} and {@code \r}</li>
+ * <li>the worker streams Pants output back and finishes the response with {@code PANTS_WORKER_EXIT=<code>}</li>
+ * <li>{@code shutdown} request stops the worker</li>
+ * <li>the worker must exit by itself after {@code $PANTS_WORKER_IDLE_TIMEOUT} seconds without requests</li>
+ * </ul>
+ * The worker is restarted if pants.ini, any BUILD file of imported targets or any module file has changed since it was started.
+ * Module files are rewritten whenever an import changes the target graph, e.g. after an edit of a BUILD file of a dependency.
+ */
+public class PantsCompileWorker {
+  private static final Logger LOG = Logger.getInstance(PantsCompileWorker.class);
+
+  public static final String WORKER_COMMAND_PROPERTY = "pants.jps.worker.command";
+  public static final String WORKER_IDLE_TIMEOUT_PROPERTY = "pants.jps.worker.idle.timeout";
+
+  private static final String PORT_PREFIX = "PANTS_WORKER_PORT=";
+  private static final String EXIT_PREFIX = "PANTS_WORKER_EXIT=";
+  private static final String SHUTDOWN_REQUEST = "shutdown";
+
+  static final String PORT_KEY = "port";
+  static final String CONFIG_STAMP_KEY = "config.stamp";
+  static final String LAST_USED_KEY = "last.used";
+
+  private static final long DEFAULT_IDLE_TIMEOUT_SECONDS = 30 * 60;
+  private static final long STARTUP_TIMEOUT_MS = 60 * 1000;
+  private static final int CONNECT_TIMEOUT_MS = 1000;
+  private static final long CANCEL_CHECK_INTERVAL_MS = 200;
+
+  // `sh` detaches the worker so it outlives the build process
+  private static final String LAUNCH_SCRIPT = "nohup \"$@\" > \"$PANTS_WORKER_LOG\" 2>&1 < /dev/null &";
+
+  @NotNull
+  private final File myPantsExecutable;
+  @NotNull
+  private final File myStateFile;
+  @NotNull
+  private final File myLogFile;
+  private final long myConfigStamp;
+  private int myPort = -1;
+
+  PantsCompileWorker(@NotNull File pantsExecutable, @NotNull File stateDir, long configStamp) {
+    myPantsExecutable = pantsExecutable;
+    myStateFile = new File(stateDir, "worker.properties");
+    myLogFile = new File(stateDir, "worker.log");
+    myConfigStamp = configStamp;
+  }
+
+  public static boolean isEnabled() {
+    return StringUtil.isNotEmpty(System.getProperty(WORKER_COMMAND_PROPERTY));
+  }
+
+  /**
+   * @param moduleFiles files of imported modules, a worker is restarted after an import rewrites any of them
+   * @return a running worker for {@code pantsExecutable}'s working dir or {@code null} if the worker mode is disabled
+   * or the worker can't be started. The caller should fall back to a one-shot Pants process in the latter case.
+   */
+  @Nullable
+  public static PantsCompileWorker findOrStartWorker(
+    @NotNull File pantsExecutable,
+    @NotNull File dataStorageRoot,
+    @NotNull Collection<String> targetAddresses,
+    @NotNull Collection<File> moduleFiles
+  ) {
+    if (!isEnabled()) {
+      return null;
+    }
+    final File workingDir = pantsExecutable.getParentFile();
+    final File stateDir = new File(dataStorageRoot, "pants-worker/" + Integer.toHexString(workingDir.getAbsolutePath().hashCode()));
+    final PantsCompileWorker worker = new PantsCompileWorker(pantsExecutable, stateDir, computeConfigStamp(workingDir, targetAddresses, moduleFiles));
+    try {
+      if (worker.reuseRunningWorker() || worker.start()) {
+        return worker;
+      }
+    }
+    catch (IOException e) {
+      LOG.warn("Failed to start Pants worker for " + workingDir, e);
+    }
+    catch (ExecutionException e) {
+      LOG.warn("Failed to start Pants worker for " + workingDir, e);
+    }
+    return null;
+  }
+
+  /**
+   * Sends {@code args} to the worker and passes each output line to {@code outputProcessor}.
+   * The connection is closed as soon as {@code cancelStatus} is canceled and the worker is expected to abort the request.
+   *
+   * @return Pants exit code
+   * @throws IOException if the request was canceled or the worker died or broke the protocol.
+   * The worker is shut down in the latter case.
+   */
+  public int execute(
+    @NotNull List<String> args,
+    @NotNull Processor<String> outputProcessor,
+    @NotNull CanceledStatus cancelStatus
+  ) throws IOException {
+    final Socket socket = connect();
+    final Future<?> cancelWatcher = watchCancellation(socket, cancelStatus);
+    try {
+      final Writer writer = new OutputStreamWriter(socket.getOutputStream(), "UTF-8");
+      writer.write(encodeRequest(args));
+      writer.write('\n');
+      writer.flush();
+
+      final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith(EXIT_PREFIX)) {
+          final Integer exitCode = parseExitCode(line);
+          if (exitCode == null) {
+            throw new IOException("Pants worker sent an invalid exit code: " + line);
+          }
+          saveState();
+          return exitCode;
+        }
+        outputProcessor.process(line + "\n");
+      }
+      throw new IOException("Pants worker closed the connection without an exit code");
+    }
+    catch (IOException e) {
+      if (!cancelStatus.isCanceled()) {
+        shutdown();
+      }
+      throw e;
+    }
+    finally {
+      cancelWatcher.cancel(true);
+      closeQuietly(socket);
+    }
+  }
+
+  @NotNull
+  private static Future<?> watchCancellation(@NotNull final Socket socket, @NotNull final CanceledStatus cancelStatus) {
+    return SharedThreadPool.getInstance().executeOnPooledThread(
+      new Runnable() {
+        @Override
+        public void run() {
+          try {
+            while (!socket.isClosed()) {
+              if (cancelStatus.isCanceled()) {
+                closeQuietly(socket);
+                return;
+              }
+              Thread.sleep(CANCEL_CHECK_INTERVAL_MS);
+            }
+          }
+          catch (InterruptedException ignored) {
+          }
+        }
+      }
+    );
+  }
+
+  public void shutdown() {
+    if (myPort > 0) {
+      try {
+        final Socket socket = connect();
+        try {
+          final Writer writer = new OutputStreamWriter(socket.getOutputStream(), "UTF-8");
+          writer.write(SHUTDOWN_REQUEST + "\n");
+          writer.flush();
+        }
+        finally {
+          closeQuietly(socket);
+        }
+      }
+      catch (IOException e) {
+        LOG.debug("Pants worker is already stopped", e);
+      }
+    }
+    myPort = -1;
+    FileUtil.delete(myStateFile);
+  }
+
+  boolean reuseRunningWorker() {
+    final Properties state = loadState();
+    if (state == null) {
+      return false;
+    }
+    myPort = StringUtil.parseInt(state.getProperty(PORT_KEY), -1);
+    final long configStamp = parseLong(state.getProperty(CONFIG_STAMP_KEY));
+    final long lastUsed = parseLong(state.getProperty(LAST_USED_KEY));
+    if (configStamp != myConfigStamp) {
+      LOG.info("pants.ini or BUILD files have changed. Restarting Pants worker.");
+      shutdown();
+      return false;
+    }
+    if (System.currentTimeMillis() - lastUsed > getIdleTimeoutSeconds() * 1000) {
+      shutdown();
+      return false;
+    }
+    try {
+      closeQuietly(connect());
+      return true;
+    }
+    catch (IOException e) {
+      shutdown();
+      return false;
+    }
+  }
+
+  private boolean start() throws ExecutionException, IOException {
+    FileUtil.createParentDirs(myLogFile);
+    FileUtil.delete(myLogFile);
+
+    final GeneralCommandLine commandLine = PantsUtil.defaultCommandLine(myPantsExecutable);
+    commandLine.getEnvironment().put("PANTS_EXECUTABLE", commandLine.getExePath());
+    commandLine.getEnvironment().put("PANTS_WORKER_LOG", myLogFile.getAbsolutePath());
+    commandLine.getEnvironment().put("PANTS_WORKER_IDLE_TIMEOUT", String.valueOf(getIdleTimeoutSeconds()));
+    commandLine.setExePath("/bin/sh");
+    commandLine.addParameters("-c", LAUNCH_SCRIPT, "sh");
+    commandLine.addParameters(ParametersListUtil.parse(System.getProperty(WORKER_COMMAND_PROPERTY)));
+    try {
+      commandLine.createProcess().waitFor();
+    }
+    catch (InterruptedException e) {
+      return false;
+    }
+
+    final long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MS;
+    while (System.currentTimeMillis() < deadline) {
+      myPort = findPortInLog();
+      if (myPort > 0) {
+        saveState();
+        return true;
+      }
+      try {
+        Thread.sleep(100);
+      }
+      catch (InterruptedException e) {
+        return false;
+      }
+    }
+    LOG.warn("Pants worker didn't report its port in " + STARTUP_TIMEOUT_MS + "ms. See " + myLogFile);
+    return false;
+  }
+
+  private int findPortInLog() throws IOException {
+    if (!myLogFile.exists()) {
+      return -1;
+    }
+    for (String line : FileUtil.loadLines(myLogFile)) {
+      final int port = parsePort(line);
+      if (port > 0) {
+        return port;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the port of a {@code PANTS_WORKER_PORT=<port>} line or -1 for any other line
+   */
+  static int parsePort(@NotNull String line) {
+    if (!line.startsWith(PORT_PREFIX)) {
+      return -1;
+    }
+    final int port = StringUtil.parseInt(line.substring(PORT_PREFIX.length()).trim(), -1);
+    return port > 0 && port <= 0xFFFF ? port : -1;
+  }
+
+  /**
+   * @return the exit code of a {@code PANTS_WORKER_EXIT=<code>} line or {@code null} if it's malformed
+   */
+  @Nullable
+  static Integer parseExitCode(@NotNull String line) {
+    if (!line.startsWith(EXIT_PREFIX)) {
+      return null;
+    }
+    try {
+      return Integer.parseInt(line.substring(EXIT_PREFIX.length()).trim());
+    }
+    catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  @NotNull
+  static String encodeRequest(@NotNull List<String> args) {
+    final StringBuilder result = new StringBuilder();
+    boolean first = true;
+    for (String arg : args) {
+      if (!first) {
+        result.append('\t');
+      }
+      first = false;
+      for (int i = 0; i < arg.length(); i++) {
+        final char c = arg.charAt(i);
+        switch (c) {
+          case '\\':
+            result.append("\\\\");
+            break;
+          case '\t':
+            result.append("\\t");
+            break;
+          case '\n':
+            result.append("\\n");
+            break;
+          case '\r':
+            result.append("\\r");
+            break;
+          default:
+            result.append(c);
+        }
+      }
+    }
+    return result.toString();
+  }
+
+  @NotNull
+  private Socket connect() throws IOException {
+    if (myPort <= 0) {
+      throw new IOException("Pants worker isn't running");
+    }
+    final Socket socket = new Socket();
+    socket.connect(new InetSocketAddress("127.0.0.1", myPort), CONNECT_TIMEOUT_MS);
+    return socket;
+  }
+
+  @Nullable
+  private Properties loadState() {
+    if (!myStateFile.exists()) {
+      return null;
+    }
+    final Properties properties = new Properties();
+    try {
+      final InputStream stream = new FileInputStream(myStateFile);
+      try {
+        properties.load(stream);
+      }
+      finally {
+        stream.close();
+      }
+      return properties;
+    }
+    catch (IOException e) {
+      LOG.warn(e);
+      return null;
+    }
+  }
+
+  private void saveState() {
+    final Properties properties = new Properties();
+    properties.setProperty(PORT_KEY, String.valueOf(myPort));
+    properties.setProperty(CONFIG_STAMP_KEY, String.valueOf(myConfigStamp));
+    properties.setProperty(LAST_USED_KEY, String.valueOf(System.currentTimeMillis()));
+    try {
+      FileUtil.createParentDirs(myStateFile);
+      final OutputStream stream = new FileOutputStream(myStateFile);
+      try {
+        properties.store(stream, null);
+      }
+      finally {
+        stream.close();
+      }
+    }
+    catch (IOException e) {
+      LOG.warn(e);
+    }
+  }
+
+  /**
+   * Combines timestamps of pants.ini, BUILD files of all {@code targetAddresses} and {@code moduleFiles}
+   * so the worker is restarted whenever the target graph might have changed.
+   * BUILD files of dependencies that aren't imported as modules, e.g. of 3rdparty libraries, aren't known here
+   * but a change of them shows up in module files after the next import.
+   */
+  static long computeConfigStamp(
+    @NotNull File workingDir,
+    @NotNull Collection<String> targetAddresses,
+    @NotNull Collection<File> moduleFiles
+  ) {
+    long result = stampOf(new File(workingDir, PantsConstants.PANTS_INI));
+    for (File moduleFile : new TreeSet<File>(moduleFiles)) {
+      result = 31 * result + stampOf(moduleFile);
+    }
+    final Set<String> buildRoots = new TreeSet<String>();
+    for (String targetAddress : targetAddresses) {
+      buildRoots.add(PantsTargetAddress.extractPath(targetAddress));
+    }
+    for (String buildRoot : buildRoots) {
+      final File buildRootFile = FileUtil.isAbsolute(buildRoot) ? new File(buildRoot) : new File(workingDir, buildRoot);
+      final File[] children = buildRootFile.isDirectory() ? buildRootFile.listFiles() : new File[]{buildRootFile};
+      if (children == null) {
+        continue;
+      }
+      for (File child : children) {
+        if (PantsUtil.isBUILDFileName(child.getName())) {
+          result = 31 * result + stampOf(child);
+        }
+      }
+    }
+    return result;
+  }
+
+  private static long stampOf(@NotNull File file) {
+    return 31 * file.lastModified() + file.length();
+  }
+
+  private static long getIdleTimeoutSeconds() {
+    final long timeout = parseLong(System.getProperty(WORKER_IDLE_TIMEOUT_PROPERTY));
+    return timeout > 0 ? timeout : DEFAULT_IDLE_TIMEOUT_SECONDS;
+  }
+
+  private static long parseLong(@Nullable String value) {
+    try {
+      return value != null ? Long.parseLong(value) : -1;
+    }
+    catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static void closeQuietly(@NotNull Socket socket) {
+    try {
+      socket.close();
+    }
+    catch (IOException ignored) {
+    }
+  }
+}
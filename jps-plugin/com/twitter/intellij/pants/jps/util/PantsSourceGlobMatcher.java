@@ -0,0 +1,77 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.jps.util;
+
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.regex.Pattern;
+
+/**
+ * Matches files against sources globs of a target from Pants' export, e.g. {@code /repo/src/java/foo/*.java}.
+ * All globs are compiled into a single pattern once.
+ */
+public class PantsSourceGlobMatcher {
+  @NotNull
+  private final Pattern myPattern;
+
+  public PantsSourceGlobMatcher(@NotNull Collection<String> globs) {
+    final StringBuilder regexp = new StringBuilder();
+    for (String glob : globs) {
+      if (regexp.length() > 0) {
+        regexp.append('|');
+      }
+      regexp.append("(?:");
+      appendGlob(regexp, FileUtil.toSystemIndependentName(glob));
+      regexp.append(')');
+    }
+    myPattern = Pattern.compile(regexp.toString());
+  }
+
+  public boolean matches(@NotNull File file) {
+    return matches(FileUtil.toSystemIndependentName(file.getPath()));
+  }
+
+  public boolean matches(@NotNull String systemIndependentPath) {
+    return myPattern.matcher(systemIndependentPath).matches();
+  }
+
+  private static void appendGlob(@NotNull StringBuilder regexp, @NotNull String glob) {
+    int literalStart = 0;
+    for (int i = 0; i < glob.length(); i++) {
+      final char c = glob.charAt(i);
+      if (c != '*' && c != '?') {
+        continue;
+      }
+      appendLiteral(regexp, glob, literalStart, i);
+      if (c == '?') {
+        regexp.append("[^/]");
+      }
+      else if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+        // `**/` matches any number of directories including none
+        if (i + 2 < glob.length() && glob.charAt(i + 2) == '/') {
+          regexp.append("(?:.*/)?");
+          i += 2;
+        }
+        else {
+          regexp.append(".*");
+          i += 1;
+        }
+      }
+      else {
+        regexp.append("[^/]*");
+      }
+      literalStart = i + 1;
+    }
+    appendLiteral(regexp, glob, literalStart, glob.length());
+  }
+
+  private static void appendLiteral(@NotNull StringBuilder regexp, @NotNull String glob, int start, int end) {
+    if (start < end) {
+      regexp.append(Pattern.quote(glob.substring(start, end)));
+    }
+  }
+}
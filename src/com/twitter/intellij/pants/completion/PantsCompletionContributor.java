@@ -5,19 +5,58 @@ package com.twitter.intellij.pants.completion;
 
 import com.intellij.codeInsight.completion.*;
 import com.intellij.codeInsight.lookup.LookupElementBuilder;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.util.ProcessingContext;
+import com.intellij.util.Processor;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.jetbrains.python.psi.PyKeywordArgument;
+import com.jetbrains.python.psi.PyListLiteralExpression;
 import com.jetbrains.python.psi.PyReferenceExpression;
+import com.jetbrains.python.psi.PyStringLiteralExpression;
+import com.twitter.intellij.pants.index.PantsBuildTargetIndex;
 import com.twitter.intellij.pants.index.PantsTargetIndex;
 import com.twitter.intellij.pants.util.PantsUtil;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeSet;
+
 import static com.intellij.patterns.PlatformPatterns.psiElement;
 
 /**
  * todo: remove dirty hack after PyPreferenceCompletionProvider patch is merged in IntelliJ
  */
 public class PantsCompletionContributor extends CompletionContributor {
+  /**
+   * Limits how many BUILD files are read and how many addresses are shown so completion stays fast in huge repos.
+   */
+  private static final int MAX_ADDRESS_DIRECTORIES = 50;
+  private static final int MAX_ADDRESSES = 500;
+  /**
+   * Shallower directories first, then shorter paths, then alphabetically.
+   */
+  private static final Comparator<String> DIRECTORY_RANK = new Comparator<String>() {
+    @Override
+    public int compare(String path1, String path2) {
+      final int depth1 = StringUtil.countChars(path1, '/');
+      final int depth2 = StringUtil.countChars(path2, '/');
+      if (depth1 != depth2) {
+        return depth1 < depth2 ? -1 : 1;
+      }
+      if (path1.length() != path2.length()) {
+        return path1.length() < path2.length() ? -1 : 1;
+      }
+      return path1.compareTo(path2);
+    }
+  };
+
   public PantsCompletionContributor() {
     extend(
       CompletionType.BASIC,
@@ -27,17 +66,144 @@ public class PantsCompletionContributor extends CompletionContributor {
         protected void addCompletions(
           @NotNull CompletionParameters parameters,
           ProcessingContext context,
-          @NotNull CompletionResultSet result
+          @NotNull final CompletionResultSet result
         ) {
           final PsiFile psiFile = parameters.getOriginalFile();
           if (!PantsUtil.isBUILDFileName(psiFile.getName())) {
             return;
           }
-          for (String alias : PantsTargetIndex.getTargets(psiFile.getProject())) {
-            result.addElement(LookupElementBuilder.create(alias));
+          final PrefixMatcher prefixMatcher = result.getPrefixMatcher();
+          FileBasedIndex.getInstance().processAllKeys(
+            PantsTargetIndex.NAME,
+            new Processor<String>() {
+              @Override
+              public boolean process(String alias) {
+                ProgressManager.checkCanceled();
+                if (prefixMatcher.prefixMatches(alias)) {
+                  result.addElement(LookupElementBuilder.create(alias));
+                }
+                return true;
+              }
+            },
+            psiFile.getProject()
+          );
+        }
+      }
+    );
+    extend(
+      CompletionType.BASIC,
+      psiElement().withParent(PyStringLiteralExpression.class),
+      new CompletionProvider<CompletionParameters>() {
+        @Override
+        protected void addCompletions(
+          @NotNull CompletionParameters parameters,
+          ProcessingContext context,
+          @NotNull CompletionResultSet result
+        ) {
+          final PsiFile psiFile = parameters.getOriginalFile();
+          if (!PantsUtil.isBUILDFileName(psiFile.getName()) || !isDependencyLiteral(parameters.getPosition())) {
+            return;
+          }
+          final String prefix = findLiteralPrefix(parameters);
+          final VirtualFile workingDir = PantsUtil.findPantsWorkingDir(psiFile);
+          // with nothing typed yet path references already offer top level directories
+          if (workingDir != null && !prefix.isEmpty()) {
+            addAddresses(psiFile.getProject(), workingDir, prefix, result);
           }
         }
       }
     );
   }
+
+  /**
+   * @return true for an element of a {@code dependencies=[...]} list, the only place where addresses are expected
+   */
+  private static boolean isDependencyLiteral(@NotNull PsiElement position) {
+    final PsiElement list = position.getParent() != null ? position.getParent().getParent() : null;
+    if (!(list instanceof PyListLiteralExpression)) {
+      return false;
+    }
+    final PsiElement keywordArgument = list.getParent();
+    return keywordArgument instanceof PyKeywordArgument &&
+           "dependencies".equalsIgnoreCase(((PyKeywordArgument)keywordArgument).getKeyword());
+  }
+
+  /**
+   * @return text of the string literal before the caret without quotes
+   */
+  @NotNull
+  private static String findLiteralPrefix(@NotNull CompletionParameters parameters) {
+    final PsiElement position = parameters.getPosition();
+    final String positionText = position.getText();
+    final int caretOffset = parameters.getOffset() - position.getTextRange().getStartOffset();
+    final String text = positionText.substring(0, Math.max(0, Math.min(caretOffset, positionText.length())));
+    int start = 0;
+    while (start < text.length() && Character.isLetter(text.charAt(start))) {
+      start++;
+    }
+    while (start < text.length() && (text.charAt(start) == '\'' || text.charAt(start) == '"')) {
+      start++;
+    }
+    return text.substring(start);
+  }
+
+  /**
+   * Completes {@code path/to/dir:target} addresses: directories are matched during a single pass
+   * over keys of {@link PantsBuildTargetIndex} and then targets of a limited number of directories are read.
+   * Directories closest to the typed path are kept, so the cap never hides e.g. {@code foo} behind {@code foo/a/b}.
+   */
+  private static void addAddresses(
+    @NotNull Project project,
+    @NotNull VirtualFile workingDir,
+    @NotNull final String prefix,
+    @NotNull CompletionResultSet result
+  ) {
+    final String workingDirPrefix = StringUtil.trimEnd(workingDir.getPath(), "/") + "/";
+    final int colonIndex = prefix.indexOf(':');
+    final String dirPrefix = colonIndex >= 0 ? prefix.substring(0, colonIndex) : prefix;
+    final TreeSet<String> matchingDirs = new TreeSet<String>(DIRECTORY_RANK);
+    FileBasedIndex.getInstance().processAllKeys(
+      PantsBuildTargetIndex.NAME,
+      new Processor<String>() {
+        @Override
+        public boolean process(String dirPath) {
+          ProgressManager.checkCanceled();
+          if (!dirPath.startsWith(workingDirPrefix)) {
+            return true;
+          }
+          final String relativePath = dirPath.substring(workingDirPrefix.length());
+          // after a colon only targets of the typed directory can match
+          final boolean matches = colonIndex >= 0 ? relativePath.equals(dirPrefix) : relativePath.startsWith(dirPrefix);
+          if (matches) {
+            matchingDirs.add(relativePath);
+            if (matchingDirs.size() > MAX_ADDRESS_DIRECTORIES) {
+              matchingDirs.pollLast();
+            }
+          }
+          return true;
+        }
+      },
+      project
+    );
+
+    final CompletionResultSet addressResult = result.withPrefixMatcher(new PlainPrefixMatcher(prefix));
+    final GlobalSearchScope scope = GlobalSearchScope.allScope(project);
+    int count = 0;
+    for (String relativePath : matchingDirs) {
+      for (Map<String, PantsBuildTargetIndex.TargetDefinition> targets : FileBasedIndex.getInstance()
+        .getValues(PantsBuildTargetIndex.NAME, workingDirPrefix + relativePath, scope)) {
+        for (Map.Entry<String, PantsBuildTargetIndex.TargetDefinition> entry : targets.entrySet()) {
+          ProgressManager.checkCanceled();
+          final String address = relativePath + ":" + entry.getKey();
+          if (!address.startsWith(prefix)) {
+            continue;
+          }
+          addressResult.addElement(LookupElementBuilder.create(address).withTypeText(entry.getValue().getType()));
+          if (++count >= MAX_ADDRESSES) {
+            return;
+          }
+        }
+      }
+    }
+  }
 }
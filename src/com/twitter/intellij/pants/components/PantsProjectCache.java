@@ -6,7 +6,17 @@ package com.twitter.intellij.pants.components;
 import com.intellij.openapi.components.ProjectComponent;
 import com.intellij.openapi.vfs.VirtualFile;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public interface PantsProjectCache extends ProjectComponent {
+  /**
+   * A hash lookup in a precomputed set of source roots' ancestors, so it's cheap to call for every rendered folder.
+   */
   boolean folderContainsSourceRoot(@NotNull VirtualFile file);
+
+  /**
+   * @return a BUILD file of a module with {@code contentRoot}. The mapping is rebuilt only after roots change.
+   */
+  @Nullable
+  VirtualFile findBUILDFileForContentRoot(@NotNull VirtualFile contentRoot);
 }
@@ -3,46 +3,41 @@
 
 package com.twitter.intellij.pants.components.impl;
 
-import com.intellij.ProjectTopics;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.components.AbstractProjectComponent;
+import com.intellij.openapi.externalSystem.settings.ExternalSystemSettingsListenerAdapter;
+import com.intellij.openapi.externalSystem.util.ExternalSystemConstants;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.roots.ModuleRootAdapter;
-import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootManager;
 import com.intellij.openapi.roots.ProjectRootManager;
-import com.intellij.openapi.util.text.StringUtil;
-import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.messages.MessageBusConnection;
 import com.twitter.intellij.pants.components.PantsProjectCache;
+import com.twitter.intellij.pants.settings.PantsProjectSettings;
+import com.twitter.intellij.pants.settings.PantsSettingsListener;
 import com.twitter.intellij.pants.util.PantsUtil;
+import gnu.trove.TObjectIntHashMap;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jps.model.java.JavaSourceRootType;
 
-import java.util.Comparator;
-import java.util.TreeSet;
+import java.util.*;
 
 public class PantsProjectCacheImpl extends AbstractProjectComponent implements PantsProjectCache, Disposable {
-  private static final Comparator<VirtualFile> VIRTUAL_FILE_COMPARATOR = new Comparator<VirtualFile>() {
-    public int compare(VirtualFile o1, VirtualFile o2) {
-      if (o1.isDirectory() && !o2.isDirectory()) {
-        return -1;
-      }
-      if (o2.isDirectory() && !o1.isDirectory()) {
-        return 1;
-      }
-
-      return StringUtil.naturalCompare(o1.getPath().toLowerCase(), o2.getPath().toLowerCase());
-    }
-  };
-
   @NotNull
   public static PantsProjectCache getInstance(final Project project) {
     return project.getComponent(PantsProjectCache.class);
   }
 
-  private volatile TreeSet<VirtualFile> myProjectRoots = null;
+  /**
+   * Replaced as a whole so readers never take a lock.
+   */
+  private volatile SourceRootsSnapshot myProjectRoots = null;
+  private volatile BUILDFilesSnapshot myContentRootToBUILDFile = null;
+  private volatile long myLinkedProjectsModificationCount = 0;
 
   protected PantsProjectCacheImpl(Project project) {
     super(project);
@@ -54,46 +49,188 @@ public class PantsProjectCacheImpl extends AbstractProjectComponent implements P
     if (myProject.isDefault() || !PantsUtil.isPantsProject(myProject)) {
       return;
     }
+    // caches track roots by the ProjectRootManager modification count,
+    // so a project imported after it's opened needs no listener for them
     final MessageBusConnection connection = myProject.getMessageBus().connect(this);
-    connection.subscribe(
-      ProjectTopics.PROJECT_ROOTS, new ModuleRootAdapter() {
-        @Override
-        public void rootsChanged(ModuleRootEvent event) {
-          super.rootsChanged(event);
-          myProjectRoots = null;
-        }
-      }
-    );
+    connection.subscribe(PantsSettingsListener.TOPIC, new LinkedProjectsListener());
   }
 
   @Override
   public boolean folderContainsSourceRoot(@NotNull VirtualFile file) {
-    if (!file.isDirectory()) {
-      return false;
-    }
-    final TreeSet<VirtualFile> allRoots = getProjectRoots();
-    // find this file or the next one in natural order
-    final VirtualFile candidate = allRoots.ceiling(file);
-    return candidate != null && VfsUtil.isAncestor(file, candidate, false);
+    return file.isDirectory() && getProjectRoots().containsRootUnder(file.getPath());
   }
 
-  private synchronized TreeSet<VirtualFile> getProjectRoots() {
-    if (myProjectRoots == null) {
-      myProjectRoots = collectRoots();
+  /**
+   * Roots are collected lazily on the first query after a roots change instead of in the roots listener on the EDT,
+   * and only the difference with the previous snapshot is applied.
+   */
+  @NotNull
+  private SourceRootsSnapshot getProjectRoots() {
+    final long modificationCount = ProjectRootManager.getInstance(myProject).getModificationCount();
+    final SourceRootsSnapshot roots = myProjectRoots;
+    if (roots != null && roots.getModificationCount() == modificationCount) {
+      return roots;
     }
-    return myProjectRoots;
+    // concurrent readers may both collect roots but they'll get equal snapshots
+    final SourceRootsSnapshot result = (roots != null ? roots : SourceRootsSnapshot.EMPTY).update(collectRootPaths(), modificationCount);
+    myProjectRoots = result;
+    return result;
   }
 
   @NotNull
-  private TreeSet<VirtualFile> collectRoots() {
-    final TreeSet<VirtualFile> result = new TreeSet<VirtualFile>(VIRTUAL_FILE_COMPARATOR);
+  private Set<String> collectRootPaths() {
     final ProjectRootManager rootManager = ProjectRootManager.getInstance(myProject);
-    result.addAll(rootManager.getModuleSourceRoots(ContainerUtil.set(JavaSourceRootType.SOURCE, JavaSourceRootType.TEST_SOURCE)));
+    final Set<String> result = new HashSet<String>();
+    for (VirtualFile root : rootManager.getModuleSourceRoots(ContainerUtil.set(JavaSourceRootType.SOURCE, JavaSourceRootType.TEST_SOURCE))) {
+      result.add(root.getPath());
+    }
+    return result;
+  }
+
+  @Nullable
+  @Override
+  public VirtualFile findBUILDFileForContentRoot(@NotNull VirtualFile contentRoot) {
+    // both counts only grow so their sum changes whenever either does
+    final long modificationCount = ProjectRootManager.getInstance(myProject).getModificationCount() + myLinkedProjectsModificationCount;
+    BUILDFilesSnapshot contentRootToBUILDFile = myContentRootToBUILDFile;
+    if (contentRootToBUILDFile == null || contentRootToBUILDFile.myModificationCount != modificationCount) {
+      contentRootToBUILDFile = new BUILDFilesSnapshot(collectBUILDFiles(), modificationCount);
+      myContentRootToBUILDFile = contentRootToBUILDFile;
+    }
+    return contentRootToBUILDFile.myContentRootToBUILDFile.get(contentRoot);
+  }
+
+  @NotNull
+  private Map<VirtualFile, VirtualFile> collectBUILDFiles() {
+    final Map<VirtualFile, VirtualFile> result = new HashMap<VirtualFile, VirtualFile>();
+    for (Module module : ModuleManager.getInstance(myProject).getModules()) {
+      final String buildPath = PantsUtil.getPathFromAddress(module, ExternalSystemConstants.LINKED_PROJECT_PATH_KEY);
+      final VirtualFile buildFile = buildPath != null ? PantsUtil.findFileRelativeToPantsWorkingDir(myProject, buildPath) : null;
+      if (buildFile == null) {
+        continue;
+      }
+      for (VirtualFile contentRoot : ModuleRootManager.getInstance(module).getContentRoots()) {
+        result.put(contentRoot, buildFile);
+      }
+    }
     return result;
   }
 
   @Override
   public void dispose() {
     myProjectRoots = null;
+    myContentRootToBUILDFile = null;
+  }
+
+  private static class BUILDFilesSnapshot {
+    @NotNull
+    private final Map<VirtualFile, VirtualFile> myContentRootToBUILDFile;
+    private final long myModificationCount;
+
+    private BUILDFilesSnapshot(@NotNull Map<VirtualFile, VirtualFile> contentRootToBUILDFile, long modificationCount) {
+      myContentRootToBUILDFile = contentRootToBUILDFile;
+      myModificationCount = modificationCount;
+    }
+  }
+
+  /**
+   * BUILD files of modules depend on linked project paths.
+   */
+  private class LinkedProjectsListener extends ExternalSystemSettingsListenerAdapter<PantsProjectSettings>
+    implements PantsSettingsListener {
+    @Override
+    public void onProjectRenamed(@NotNull String oldName, @NotNull String newName) {
+      myLinkedProjectsModificationCount++;
+    }
+
+    @Override
+    public void onProjectsLinked(@NotNull Collection<PantsProjectSettings> settings) {
+      myLinkedProjectsModificationCount++;
+    }
+
+    @Override
+    public void onProjectsUnlinked(@NotNull Set<String> linkedProjectPaths) {
+      myLinkedProjectsModificationCount++;
+    }
+  }
+
+  /**
+   * Source roots and all their ancestor folders. Each folder maps to the number of roots under it (including itself)
+   * so a root can be removed without rescanning others. Never modified after creation.
+   */
+  private static class SourceRootsSnapshot {
+    private static final SourceRootsSnapshot EMPTY =
+      new SourceRootsSnapshot(Collections.<String>emptySet(), new TObjectIntHashMap<String>(), -1);
+
+    @NotNull
+    private final Set<String> myRootPaths;
+    @NotNull
+    private final TObjectIntHashMap<String> myRootsCountUnderFolder;
+    // ProjectRootManager modification count the roots were collected at
+    private final long myModificationCount;
+
+    private SourceRootsSnapshot(
+      @NotNull Set<String> rootPaths,
+      @NotNull TObjectIntHashMap<String> rootsCountUnderFolder,
+      long modificationCount
+    ) {
+      myRootPaths = rootPaths;
+      myRootsCountUnderFolder = rootsCountUnderFolder;
+      myModificationCount = modificationCount;
+    }
+
+    public long getModificationCount() {
+      return myModificationCount;
+    }
+
+    public boolean containsRootUnder(@NotNull String folderPath) {
+      return myRootsCountUnderFolder.containsKey(folderPath);
+    }
+
+    /**
+     * Applies only the difference between the snapshot and {@code newRootPaths}:
+     * only ancestors of added and removed roots are touched.
+     */
+    @NotNull
+    public SourceRootsSnapshot update(@NotNull Set<String> newRootPaths, long modificationCount) {
+      if (myRootPaths.equals(newRootPaths)) {
+        return new SourceRootsSnapshot(myRootPaths, myRootsCountUnderFolder, modificationCount);
+      }
+      @SuppressWarnings("unchecked")
+      final TObjectIntHashMap<String> rootsCountUnderFolder = (TObjectIntHashMap<String>)myRootsCountUnderFolder.clone();
+      for (String rootPath : myRootPaths) {
+        if (!newRootPaths.contains(rootPath)) {
+          for (String folder = rootPath; folder != null; folder = getParentPath(folder)) {
+            if (rootsCountUnderFolder.adjustOrPutValue(folder, -1, 0) <= 0) {
+              rootsCountUnderFolder.remove(folder);
+            }
+          }
+        }
+      }
+      for (String rootPath : newRootPaths) {
+        if (!myRootPaths.contains(rootPath)) {
+          for (String folder = rootPath; folder != null; folder = getParentPath(folder)) {
+            rootsCountUnderFolder.adjustOrPutValue(folder, 1, 1);
+          }
+        }
+      }
+      return new SourceRootsSnapshot(newRootPaths, rootsCountUnderFolder, modificationCount);
+    }
+
+    /**
+     * @return a parent path in terms of {@link VirtualFile#getPath()}, i.e. file system roots end with a slash.
+     */
+    @Nullable
+    private static String getParentPath(@NotNull String path) {
+      if (path.endsWith("/")) {
+        return null;
+      }
+      final int index = path.lastIndexOf('/');
+      if (index < 0) {
+        return null;
+      }
+      final boolean isFileSystemRoot = index == 0 || path.charAt(index - 1) == ':';
+      return path.substring(0, isFileSystemRoot ? index + 1 : index);
+    }
   }
 }
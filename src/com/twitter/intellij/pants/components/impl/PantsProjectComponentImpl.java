@@ -11,6 +11,8 @@ import com.intellij.openapi.startup.StartupManager;
 import com.intellij.openapi.ui.Messages;
 import com.twitter.intellij.pants.PantsBundle;
 import com.twitter.intellij.pants.components.PantsProjectComponent;
+import com.twitter.intellij.pants.execution.PantsClassesFarm;
+import com.twitter.intellij.pants.execution.PantsCompiledOutputsListener;
 import com.twitter.intellij.pants.service.project.PantsResolver;
 import com.twitter.intellij.pants.settings.PantsSettings;
 import com.twitter.intellij.pants.util.PantsConstants;
@@ -28,6 +30,9 @@ public class PantsProjectComponentImpl extends AbstractProjectComponent implemen
     if (myProject.isDefault()) {
       return;
     }
+    if (PantsClassesFarm.isEnabled()) {
+      PantsCompiledOutputsListener.subscribe(myProject);
+    }
     StartupManager.getInstance(myProject).registerPostStartupActivity(
       new Runnable() {
         @Override
@@ -0,0 +1,244 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.execution;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single classes directory with hard links to files of all compiler output directories of a run,
+ * so a JVM looks classes up in one directory instead of an output directory of every target of the isolated strategy.
+ * <p/>
+ * The directory is updated on every launch. All output directories are listed, so files written by anything,
+ * e.g. Pants run from a terminal, are picked up, and a file is linked again when its size or timestamp differs from its link.
+ * Output directories of targets reported by a build, see {@link PantsCompiledOutputsListener}, are linked again in full,
+ * as are all of them after a build that didn't report its targets.
+ * A file in an earlier output directory wins as it does on the classpath. Files are copied where hard links aren't supported.
+ * <p/>
+ * Enabled with the {@code pants.classes.farm} system property.
+ */
+public class PantsClassesFarm {
+  private static final Logger LOG = Logger.getInstance(PantsClassesFarm.class);
+
+  private static final long MAX_UNUSED_AGE = TimeUnit.DAYS.toMillis(7);
+  // a file replaced this long before an update may keep its size and timestamp, e.g. with one second timestamps
+  private static final long TIMESTAMP_GRANULARITY = TimeUnit.SECONDS.toMillis(2);
+
+  // java.nio.file.Files.createLink and File.toPath if the IDE runs on Java 7 or later
+  private static final Method ourCreateLinkMethod;
+  private static final Method ourToPathMethod;
+
+  // incremented by every reported build
+  private static long ourModificationCount = 0;
+  private static long ourAllOutputsModificationCount = 0;
+  // output directory -> modification count of the last build that changed it
+  private static final Map<String, Long> ourOutputModificationCounts = new HashMap<String, Long>();
+  // farm -> state after its last update
+  private static final Map<File, FarmState> ourFarms = new HashMap<File, FarmState>();
+
+  static {
+    Method createLinkMethod = null;
+    Method toPathMethod = null;
+    try {
+      final Class<?> pathClass = Class.forName("java.nio.file.Path");
+      createLinkMethod = Class.forName("java.nio.file.Files").getMethod("createLink", pathClass, pathClass);
+      toPathMethod = File.class.getMethod("toPath");
+    }
+    catch (Exception e) {
+      LOG.info("Hard links aren't supported, classes will be copied");
+    }
+    ourCreateLinkMethod = createLinkMethod;
+    ourToPathMethod = toPathMethod;
+  }
+
+  private PantsClassesFarm() {
+  }
+
+  public static boolean isEnabled() {
+    return Boolean.valueOf(System.getProperty("pants.classes.farm"));
+  }
+
+  /**
+   * All files of {@code outputDirs} will be linked again on the next update of farms containing them.
+   */
+  public static synchronized void outputsChanged(@NotNull Collection<String> outputDirs) {
+    ourModificationCount++;
+    for (String outputDir : outputDirs) {
+      ourOutputModificationCounts.put(outputDir, ourModificationCount);
+    }
+  }
+
+  /**
+   * All files of all farms will be linked again on their next update.
+   */
+  public static synchronized void allOutputsChanged() {
+    ourAllOutputsModificationCount = ++ourModificationCount;
+    ourOutputModificationCounts.clear();
+  }
+
+  /**
+   * @return a directory with all files of {@code outputDirs}
+   */
+  @NotNull
+  public static synchronized File update(@NotNull List<String> outputDirs) throws IOException {
+    final File farmsDir = new File(PathManager.getSystemPath(), "pants/classes");
+    final File farm = new File(farmsDir, PantsClasspathJar.hash(outputDirs));
+    if (!farm.isDirectory()) {
+      deleteUnusedFarms(farmsDir);
+    }
+    final long updateTime = System.currentTimeMillis();
+    // the farm's timestamp is the start of its last update
+    final long lastUpdateTime = farm.isDirectory() ? farm.lastModified() : 0;
+    final FarmState lastState = farm.isDirectory() ? ourFarms.get(farm) : null;
+
+    // relative path -> output dir
+    final Map<String, String> links = new HashMap<String, String>();
+    final Set<String> changedOutputDirs = new HashSet<String>();
+    for (String outputDir : outputDirs) {
+      if (lastState != null && isChangedSince(outputDir, lastState.myModificationCount)) {
+        changedOutputDirs.add(outputDir);
+      }
+      final List<String> files = new ArrayList<String>();
+      collectFiles(new File(outputDir), null, files);
+      for (String path : files) {
+        if (!links.containsKey(path)) {
+          links.put(path, outputDir);
+        }
+      }
+    }
+
+    if (lastState == null) {
+      deleteStaleFiles(farm, null, links.keySet());
+    }
+    else {
+      for (String path : lastState.myLinks.keySet()) {
+        if (!links.containsKey(path)) {
+          FileUtil.delete(new File(farm, path));
+        }
+      }
+    }
+    for (Map.Entry<String, String> entry : links.entrySet()) {
+      final String path = entry.getKey();
+      final String outputDir = entry.getValue();
+      final File source = new File(outputDir, path);
+      final File target = new File(farm, path);
+      final boolean sameOutputDir = lastState == null || outputDir.equals(lastState.myLinks.get(path));
+      if (sameOutputDir && !changedOutputDirs.contains(outputDir) && isUpToDate(source, target, lastUpdateTime)) {
+        continue;
+      }
+      if (target.exists() && !FileUtil.delete(target)) {
+        throw new IOException("Failed to delete " + target);
+      }
+      FileUtil.createParentDirs(target);
+      link(source, target);
+    }
+    if (!farm.isDirectory() && !farm.mkdirs()) {
+      throw new IOException("Failed to create " + farm);
+    }
+    // keep used farms from being cleaned up
+    farm.setLastModified(updateTime);
+    ourFarms.put(farm, new FarmState(ourModificationCount, links));
+    return farm;
+  }
+
+  private static boolean isChangedSince(@NotNull String outputDir, long modificationCount) {
+    final Long outputModificationCount = ourOutputModificationCounts.get(outputDir);
+    return modificationCount < ourAllOutputsModificationCount ||
+           outputModificationCount != null && outputModificationCount > modificationCount;
+  }
+
+  /**
+   * A link shares the size and the timestamp of its file. A file replaced shortly before the last update
+   * may have the same size and timestamp as the replaced one, so it's linked again.
+   */
+  private static boolean isUpToDate(@NotNull File source, @NotNull File target, long lastUpdateTime) {
+    return target.isFile() &&
+           target.length() == source.length() &&
+           target.lastModified() == source.lastModified() &&
+           source.lastModified() < lastUpdateTime - TIMESTAMP_GRANULARITY;
+  }
+
+  private static void collectFiles(@NotNull File dir, @Nullable String relativePath, @NotNull List<String> result) {
+    final File[] children = dir.listFiles();
+    if (children == null) {
+      return;
+    }
+    for (File child : children) {
+      final String childPath = relativePath != null ? relativePath + "/" + child.getName() : child.getName();
+      if (child.isDirectory()) {
+        collectFiles(child, childPath, result);
+      }
+      else {
+        result.add(childPath);
+      }
+    }
+  }
+
+  private static void deleteStaleFiles(@NotNull File dir, @Nullable String relativePath, @NotNull Set<String> paths) {
+    final File[] children = dir.listFiles();
+    if (children == null) {
+      return;
+    }
+    for (File child : children) {
+      final String childPath = relativePath != null ? relativePath + "/" + child.getName() : child.getName();
+      if (child.isDirectory()) {
+        deleteStaleFiles(child, childPath, paths);
+      }
+      else if (!paths.contains(childPath)) {
+        FileUtil.delete(child);
+      }
+    }
+  }
+
+  private static void link(@NotNull File source, @NotNull File target) throws IOException {
+    if (ourCreateLinkMethod != null) {
+      try {
+        ourCreateLinkMethod.invoke(null, ourToPathMethod.invoke(target), ourToPathMethod.invoke(source));
+        return;
+      }
+      catch (Exception e) {
+        // e.g. the outputs are on another file system
+        LOG.debug("Failed to link " + source, e);
+      }
+    }
+    FileUtil.copy(source, target);
+    target.setLastModified(source.lastModified());
+  }
+
+  private static void deleteUnusedFarms(@NotNull File farmsDir) {
+    final File[] farms = farmsDir.listFiles();
+    if (farms == null) {
+      return;
+    }
+    final long now = System.currentTimeMillis();
+    for (File farm : farms) {
+      if (now - farm.lastModified() <= MAX_UNUSED_AGE) {
+        continue;
+      }
+      ourFarms.remove(farm);
+      if (!FileUtil.delete(farm)) {
+        LOG.info("Failed to delete unused classes directory " + farm);
+      }
+    }
+  }
+
+  private static class FarmState {
+    private final long myModificationCount;
+    private final Map<String, String> myLinks;
+
+    private FarmState(long modificationCount, @NotNull Map<String, String> links) {
+      myModificationCount = modificationCount;
+      myLinks = links;
+    }
+  }
+}
@@ -0,0 +1,126 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.execution;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * A jar with an empty body and the whole classpath in the {@code Class-Path} attribute of its manifest.
+ * Used instead of the classpath when it's too long for a command line, e.g. with output directories of every target.
+ * Jars are named by a hash of the classpath so a launch with the same classpath reuses the existing jar.
+ * <p/>
+ * Off by default: the launched JVM sees the jar as its only {@code java.class.path} entry, which breaks code that
+ * scans that property, e.g. some test frameworks and classpath scanners. It's enabled by setting the threshold
+ * in characters with the {@code pants.classpath.jar.threshold} system property, e.g. to 30000.
+ */
+public class PantsClasspathJar {
+  private static final Logger LOG = Logger.getInstance(PantsClasspathJar.class);
+
+  static final String THRESHOLD_PROPERTY = "pants.classpath.jar.threshold";
+  private static final long MAX_UNUSED_AGE = TimeUnit.DAYS.toMillis(7);
+
+  private PantsClasspathJar() {
+  }
+
+  public static boolean isNeeded(@NotNull List<String> classpath) {
+    final int threshold = StringUtil.parseInt(System.getProperty(THRESHOLD_PROPERTY), 0);
+    if (threshold <= 0) {
+      return false;
+    }
+    int length = 0;
+    for (String path : classpath) {
+      length += path.length() + 1;
+      if (length > threshold) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @NotNull
+  public static File getOrCreate(@NotNull List<String> classpath) throws IOException {
+    final File jarsDir = new File(PathManager.getSystemPath(), "pants/classpath");
+    final File jar = new File(jarsDir, "classpath-" + hash(classpath) + ".jar");
+    if (jar.isFile()) {
+      // keep used jars from being cleaned up
+      jar.setLastModified(System.currentTimeMillis());
+      return jar;
+    }
+    deleteUnusedJars(jarsDir);
+    FileUtil.createParentDirs(jar);
+    final File tempJar = FileUtil.createTempFile(jarsDir, "classpath", ".tmp", true, true);
+    final JarOutputStream output = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(tempJar)), createManifest(classpath));
+    try {
+      output.finish();
+    }
+    finally {
+      output.close();
+    }
+    // a concurrent launch might have created the same jar already
+    if (!tempJar.renameTo(jar) && !jar.isFile()) {
+      throw new IOException("Failed to create " + jar);
+    }
+    FileUtil.delete(tempJar);
+    return jar;
+  }
+
+  @NotNull
+  private static Manifest createManifest(@NotNull List<String> classpath) {
+    final StringBuilder classPathAttribute = new StringBuilder();
+    for (String path : classpath) {
+      final File file = new File(path);
+      String url = file.toURI().toString();
+      // entries without a trailing slash are treated as jars, outputs of targets may not exist yet
+      if (!url.endsWith("/") && !file.isFile() && !FileUtil.extensionEquals(path, "jar") && !FileUtil.extensionEquals(path, "zip")) {
+        url += "/";
+      }
+      classPathAttribute.append(url).append(' ');
+    }
+    final Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classPathAttribute.toString().trim());
+    return manifest;
+  }
+
+  @NotNull
+  static String hash(@NotNull List<String> classpath) throws IOException {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      for (String path : classpath) {
+        digest.update(path.getBytes("UTF-8"));
+        digest.update((byte)0);
+      }
+      return StringUtil.toHexString(digest.digest());
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static void deleteUnusedJars(@NotNull File jarsDir) {
+    final File[] files = jarsDir.listFiles();
+    if (files == null) {
+      return;
+    }
+    final long now = System.currentTimeMillis();
+    for (File file : files) {
+      if (now - file.lastModified() > MAX_UNUSED_AGE && !FileUtil.delete(file)) {
+        LOG.info("Failed to delete unused classpath jar " + file);
+      }
+    }
+  }
+}
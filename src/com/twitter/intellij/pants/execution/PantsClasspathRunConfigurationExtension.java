@@ -9,12 +9,9 @@ import com.intellij.execution.configurations.*;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.options.SettingsEditor;
-import com.intellij.openapi.roots.OrderEnumerator;
 import com.intellij.openapi.util.InvalidDataException;
 import com.intellij.openapi.util.WriteExternalException;
-import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.PathsList;
-import com.intellij.util.Processor;
 import com.twitter.intellij.pants.util.PantsConstants;
 import com.twitter.intellij.pants.util.PantsUtil;
 import org.jdom.Element;
@@ -22,10 +19,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
+import java.util.*;
 
 
 public class PantsClasspathRunConfigurationExtension extends RunConfigurationExtension {
@@ -43,71 +38,90 @@ public class PantsClasspathRunConfigurationExtension extends RunConfigurationExt
     }
     final PathsList classpath = params.getClassPath();
 
-    for (Map.Entry<String, String> excludedPathEntry : findAllExcludedJars(classpath.getPathList(), findExcludes(module)).entrySet()) {
+    final PantsRuntimeClasspath runtimeClasspath = PantsRuntimeClasspath.getInstance(module);
+    for (Map.Entry<String, String> excludedPathEntry : runtimeClasspath.findExcludedJars(classpath.getPathList()).entrySet()) {
       final String excludedPath = excludedPathEntry.getKey();
       final String address = excludedPathEntry.getValue();
       LOG.info(address + " excluded " + excludedPath);
       classpath.remove(excludedPath);
     }
-    processRuntimeModules(
-      module,
-      new Processor<Module>() {
-        @Override
-        public boolean process(Module module) {
-          final String compilerOutputs = StringUtil.notNullize(module.getOptionValue(PantsConstants.PANTS_COMPILER_OUTPUTS_KEY));
-          classpath.addAll(StringUtil.split(compilerOutputs, File.pathSeparator));
-          return true;
-        }
+    addCompilerOutputs(classpath, runtimeClasspath.getCompilerOutputs());
+
+    final List<String> classpathEntries = classpath.getPathList();
+    if (PantsClasspathJar.isNeeded(classpathEntries)) {
+      try {
+        final File classpathJar = PantsClasspathJar.getOrCreate(classpathEntries);
+        classpath.clear();
+        classpath.add(classpathJar.getPath());
       }
-    );
-  }
-
-  @NotNull
-  private Map<String, String> findExcludes(@NotNull Module module) {
-    final Map<String, String> result = new HashMap<String, String>();
-    processRuntimeModules(
-      module,
-      new Processor<Module>() {
-        @Override
-        public boolean process(Module module) {
-          final String targets  = module.getOptionValue(PantsConstants.PANTS_TARGET_ADDRESSES_KEY);
-          final String excludes = module.getOptionValue(PantsConstants.PANTS_LIBRARY_EXCLUDES_KEY);
-          for (String exclude : StringUtil.split(StringUtil.notNullize(excludes), ",")) {
-            result.put(exclude, StringUtil.notNullize(targets, module.getName()));
-          }
-          return true;
-        }
+      catch (IOException e) {
+        LOG.warn("Failed to create a classpath jar, the classpath is passed as is", e);
       }
-    );
-    return result;
+    }
   }
 
-  private void processRuntimeModules(@NotNull Module module, Processor<Module> processor) {
-    final OrderEnumerator runtimeEnumerator = OrderEnumerator.orderEntries(module).runtimeOnly().recursively();
-    runtimeEnumerator.forEachModule(processor);
+  private static void addCompilerOutputs(@NotNull PathsList classpath, @NotNull List<String> compilerOutputs) {
+    if (compilerOutputs.size() > 1 && PantsClassesFarm.isEnabled()) {
+      try {
+        classpath.add(PantsClassesFarm.update(compilerOutputs).getPath());
+        return;
+      }
+      catch (IOException e) {
+        LOG.warn("Failed to update the classes directory, compiler outputs are added as is", e);
+      }
+    }
+    classpath.addAll(compilerOutputs);
   }
 
+  /**
+   * An exclude looks like {@code com.foo:bar} or {@code com.foo}. Pants resolves jars with Ivy
+   * so all jars with {@code /com.foo/bar/} or {@code /com.foo/} in the path are excluded.
+   * Every classpath entry is split into path segments once and adjacent segments are looked up in {@code excludes}.
+   *
+   * @return excluded classpath entries to addresses of targets excluding them
+   */
   @NotNull
-  private Map<String, String> findAllExcludedJars(@NotNull List<String> classpathEntries, @NotNull Map<String, String> excludes) {
+  static Map<String, String> findAllExcludedJars(@NotNull List<String> classpathEntries, @NotNull Map<String, String> excludes) {
     if (excludes.isEmpty()) {
       return Collections.emptyMap();
     }
     final Map<String, String> result = new HashMap<String, String>();
     for (String classpathEntry : classpathEntries) {
-      for (Map.Entry<String, String> excludeEntry : excludes.entrySet()) {
-        final String exclude = excludeEntry.getKey();
-        final String address = excludeEntry.getValue();
-        // exclude looks like com.foo:bar
-        // let's remove all jars with /com.foo/bar/ in the path
-        // because Pants uses Ivy
-        if (StringUtil.contains(classpathEntry, File.separator + exclude.replace(':', File.separatorChar) + File.separator)) {
-          result.put(classpathEntry, address);
-        }
+      final String address = findExcludingAddress(classpathEntry, excludes);
+      if (address != null) {
+        result.put(classpathEntry, address);
       }
     }
     return result;
   }
 
+  @Nullable
+  private static String findExcludingAddress(@NotNull String classpathEntry, @NotNull Map<String, String> excludes) {
+    // only segments between separators are Ivy org and module names
+    final List<String> segments = new ArrayList<String>();
+    int segmentStart = -1;
+    for (int i = 0; i < classpathEntry.length(); i++) {
+      final char c = classpathEntry.charAt(i);
+      if (c == '/' || c == File.separatorChar) {
+        if (segmentStart >= 0 && segmentStart < i) {
+          segments.add(classpathEntry.substring(segmentStart, i));
+        }
+        segmentStart = i + 1;
+      }
+    }
+    for (int i = 0; i < segments.size(); i++) {
+      final String orgAddress = excludes.get(segments.get(i));
+      if (orgAddress != null) {
+        return orgAddress;
+      }
+      final String moduleAddress = i + 1 < segments.size() ? excludes.get(segments.get(i) + ":" + segments.get(i + 1)) : null;
+      if (moduleAddress != null) {
+        return moduleAddress;
+      }
+    }
+    return null;
+  }
+
   @Nullable
   private <T extends RunConfigurationBase> Module findPantsModule(T configuration) {
     if (!(configuration instanceof ModuleBasedConfiguration)) {
@@ -0,0 +1,79 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.execution;
+
+import com.intellij.compiler.server.CustomBuilderMessageHandler;
+import com.intellij.openapi.compiler.CompilationStatusAdapter;
+import com.intellij.openapi.compiler.CompileContext;
+import com.intellij.openapi.compiler.CompilerTopics;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.messages.MessageBusConnection;
+import com.twitter.intellij.pants.model.PantsTargetAddress;
+import com.twitter.intellij.pants.service.project.metadata.PantsModuleAddressIndex;
+import com.twitter.intellij.pants.util.PantsConstants;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Maps targets compiled by the Pants JPS builder to their compiler outputs and tells {@link PantsClassesFarm} about them.
+ * A build that finishes without reporting its targets, e.g. a canceled one, marks all outputs as changed.
+ */
+public class PantsCompiledOutputsListener extends CompilationStatusAdapter implements CustomBuilderMessageHandler {
+  private final Project myProject;
+  private final AtomicBoolean myTargetsReported = new AtomicBoolean(false);
+
+  private PantsCompiledOutputsListener(@NotNull Project project) {
+    myProject = project;
+  }
+
+  public static void subscribe(@NotNull Project project) {
+    final PantsCompiledOutputsListener listener = new PantsCompiledOutputsListener(project);
+    final MessageBusConnection connection = project.getMessageBus().connect(project);
+    connection.subscribe(CustomBuilderMessageHandler.TOPIC, listener);
+    connection.subscribe(CompilerTopics.COMPILATION_STATUS, listener);
+  }
+
+  @Override
+  public void messageReceived(String builderId, String messageType, String messageText) {
+    if (!PantsConstants.PANTS.equals(builderId) || !PantsConstants.PANTS_COMPILED_TARGETS_MESSAGE.equals(messageType)) {
+      return;
+    }
+    myTargetsReported.set(true);
+    final PantsModuleAddressIndex addressIndex = PantsModuleAddressIndex.getInstance(myProject);
+    final List<String> outputDirs = new ArrayList<String>();
+    for (String targetAddress : StringUtil.split(StringUtil.notNullize(messageText), ",")) {
+      final Module module = addressIndex.findModule(PantsTargetAddress.fromString(targetAddress));
+      if (module == null) {
+        // outputs of a target that isn't imported yet are unknown
+        PantsClassesFarm.allOutputsChanged();
+        return;
+      }
+      final String outputs = module.getOptionValue(PantsConstants.PANTS_COMPILER_OUTPUTS_KEY);
+      outputDirs.addAll(StringUtil.split(StringUtil.notNullize(outputs), File.pathSeparator));
+    }
+    PantsClassesFarm.outputsChanged(outputDirs);
+  }
+
+  @Override
+  public void compilationFinished(boolean aborted, int errors, int warnings, CompileContext compileContext) {
+    buildFinished();
+  }
+
+  @Override
+  public void automakeCompilationFinished(int errors, int warnings, CompileContext compileContext) {
+    buildFinished();
+  }
+
+  private void buildFinished() {
+    if (!myTargetsReported.getAndSet(false)) {
+      PantsClassesFarm.allOutputsChanged();
+    }
+  }
+}
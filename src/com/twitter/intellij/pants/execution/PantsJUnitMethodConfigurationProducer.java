@@ -0,0 +1,47 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.execution;
+
+import com.intellij.execution.actions.ConfigurationContext;
+import com.intellij.execution.actions.ConfigurationFromContext;
+import com.intellij.execution.junit.JUnitConfiguration;
+import com.intellij.execution.junit.TestMethodConfigurationProducer;
+import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+
+/**
+ * Runs a single test method of a Pants module with a plain JUnit configuration, see {@link PantsJUnitRunConfigurationProducer}.
+ */
+public class PantsJUnitMethodConfigurationProducer extends TestMethodConfigurationProducer {
+  @Override
+  protected boolean setupConfigurationFromContext(
+    JUnitConfiguration configuration,
+    ConfigurationContext context,
+    Ref<PsiElement> sourceElement
+  ) {
+    final VirtualFile workingDir = PantsJUnitRunConfigurationProducer.findPantsWorkingDir(context);
+    if (workingDir == null || !super.setupConfigurationFromContext(configuration, context, sourceElement)) {
+      return false;
+    }
+    configuration.setWorkingDirectory(workingDir.getPath());
+    return true;
+  }
+
+  @Override
+  public boolean isConfigurationFromContext(JUnitConfiguration configuration, ConfigurationContext context) {
+    final VirtualFile workingDir = PantsJUnitRunConfigurationProducer.findPantsWorkingDir(context);
+    return workingDir != null &&
+           FileUtil.pathsEqual(workingDir.getPath(), configuration.getWorkingDirectory()) &&
+           super.isConfigurationFromContext(configuration, context);
+  }
+
+  @Override
+  public boolean shouldReplace(ConfigurationFromContext self, ConfigurationFromContext other) {
+    return PantsJUnitRunConfigurationProducer.isEnabled() &&
+           other.isProducedBy(TestMethodConfigurationProducer.class) &&
+           !other.isProducedBy(PantsJUnitMethodConfigurationProducer.class);
+  }
+}
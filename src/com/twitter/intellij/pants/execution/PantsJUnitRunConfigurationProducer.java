@@ -0,0 +1,74 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.execution;
+
+import com.intellij.execution.actions.ConfigurationContext;
+import com.intellij.execution.actions.ConfigurationFromContext;
+import com.intellij.execution.junit.JUnitConfiguration;
+import com.intellij.execution.junit.TestClassConfigurationProducer;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.twitter.intellij.pants.util.PantsUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Runs tests of Pants modules with a plain JUnit configuration instead of {@code pants test}:
+ * the classpath is the module classpath with compiler outputs and excludes of targets,
+ * see {@link PantsClasspathRunConfigurationExtension}, so a rerun only costs a JVM start.
+ * An alternative to {@link PantsTestRunConfigurationProducer} which runs the same tests with Pants.
+ * Test methods are covered by {@link PantsJUnitMethodConfigurationProducer}.
+ * <p/>
+ * Enabled with the {@code pants.junit.configurations} system property. Otherwise stock JUnit configurations are created.
+ */
+public class PantsJUnitRunConfigurationProducer extends TestClassConfigurationProducer {
+  static final String ENABLED_PROPERTY = "pants.junit.configurations";
+
+  @Override
+  protected boolean setupConfigurationFromContext(
+    JUnitConfiguration configuration,
+    ConfigurationContext context,
+    Ref<PsiElement> sourceElement
+  ) {
+    final VirtualFile workingDir = findPantsWorkingDir(context);
+    if (workingDir == null || !super.setupConfigurationFromContext(configuration, context, sourceElement)) {
+      return false;
+    }
+    // Pants runs tests from the build root so resources are looked up relative to it
+    configuration.setWorkingDirectory(workingDir.getPath());
+    return true;
+  }
+
+  @Override
+  public boolean isConfigurationFromContext(JUnitConfiguration configuration, ConfigurationContext context) {
+    final VirtualFile workingDir = findPantsWorkingDir(context);
+    return workingDir != null &&
+           FileUtil.pathsEqual(workingDir.getPath(), configuration.getWorkingDirectory()) &&
+           super.isConfigurationFromContext(configuration, context);
+  }
+
+  @Override
+  public boolean shouldReplace(ConfigurationFromContext self, ConfigurationFromContext other) {
+    // the same JUnit configuration but with the working dir of Pants
+    return isEnabled() &&
+           other.isProducedBy(TestClassConfigurationProducer.class) &&
+           !other.isProducedBy(PantsJUnitRunConfigurationProducer.class);
+  }
+
+  public static boolean isEnabled() {
+    return Boolean.valueOf(System.getProperty(ENABLED_PROPERTY));
+  }
+
+  /**
+   * @return the working dir for tests of a Pants module or null if configurations aren't produced for the context
+   */
+  @Nullable
+  static VirtualFile findPantsWorkingDir(@NotNull ConfigurationContext context) {
+    final Module module = context.getModule();
+    return isEnabled() && module != null && PantsUtil.isPantsModule(module) ? PantsUtil.findPantsWorkingDir(module) : null;
+  }
+}
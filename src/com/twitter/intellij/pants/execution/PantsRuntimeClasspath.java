@@ -0,0 +1,115 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.execution;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.OrderEnumerator;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.SimpleModificationTracker;
+import com.intellij.openapi.util.UserDataHolderEx;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.util.Processor;
+import com.twitter.intellij.pants.util.PantsConstants;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Compiler outputs and library excludes of runtime dependencies of a module.
+ * Cached per module until roots change or Pants metadata of modules is imported again, see {@link #invalidate(Project)}.
+ */
+public class PantsRuntimeClasspath {
+  private static final Key<CachedValue<PantsRuntimeClasspath>> RUNTIME_CLASSPATH_KEY = Key.create("pants.runtime.classpath");
+  private static final Key<SimpleModificationTracker> METADATA_TRACKER_KEY = Key.create("pants.runtime.classpath.metadata.tracker");
+
+  private final List<String> myCompilerOutputs;
+  // exclude -> address of a target that excludes it
+  private final Map<String, String> myExcludes;
+
+  private PantsRuntimeClasspath(@NotNull List<String> compilerOutputs, @NotNull Map<String, String> excludes) {
+    myCompilerOutputs = compilerOutputs;
+    myExcludes = excludes;
+  }
+
+  @NotNull
+  public static PantsRuntimeClasspath getInstance(@NotNull final Module module) {
+    final Project project = module.getProject();
+    return CachedValuesManager.getManager(project).getCachedValue(
+      module,
+      RUNTIME_CLASSPATH_KEY,
+      new CachedValueProvider<PantsRuntimeClasspath>() {
+        @Nullable
+        @Override
+        public Result<PantsRuntimeClasspath> compute() {
+          return Result.create(
+            collect(module),
+            ProjectRootManager.getInstance(project),
+            getMetadataTracker(project)
+          );
+        }
+      },
+      false
+    );
+  }
+
+  /**
+   * Drops cached classpaths of all modules of {@code project}. Compiler outputs and excludes are module options
+   * which don't change roots, so an import of Pants metadata has to call it.
+   */
+  public static void invalidate(@NotNull Project project) {
+    getMetadataTracker(project).incModificationCount();
+  }
+
+  @NotNull
+  private static SimpleModificationTracker getMetadataTracker(@NotNull Project project) {
+    final SimpleModificationTracker tracker = project.getUserData(METADATA_TRACKER_KEY);
+    if (tracker != null) {
+      return tracker;
+    }
+    return ((UserDataHolderEx)project).putUserDataIfAbsent(METADATA_TRACKER_KEY, new SimpleModificationTracker());
+  }
+
+  @NotNull
+  private static PantsRuntimeClasspath collect(@NotNull Module module) {
+    final List<String> compilerOutputs = new ArrayList<String>();
+    final Map<String, String> excludes = new HashMap<String, String>();
+    // a single walk for both outputs and excludes
+    OrderEnumerator.orderEntries(module).runtimeOnly().recursively().forEachModule(
+      new Processor<Module>() {
+        @Override
+        public boolean process(Module module) {
+          final String outputs = module.getOptionValue(PantsConstants.PANTS_COMPILER_OUTPUTS_KEY);
+          compilerOutputs.addAll(StringUtil.split(StringUtil.notNullize(outputs), File.pathSeparator));
+          final String targets = module.getOptionValue(PantsConstants.PANTS_TARGET_ADDRESSES_KEY);
+          final String moduleExcludes = module.getOptionValue(PantsConstants.PANTS_LIBRARY_EXCLUDES_KEY);
+          for (String exclude : StringUtil.split(StringUtil.notNullize(moduleExcludes), ",")) {
+            excludes.put(exclude, StringUtil.notNullize(targets, module.getName()));
+          }
+          return true;
+        }
+      }
+    );
+    return new PantsRuntimeClasspath(Collections.unmodifiableList(compilerOutputs), Collections.unmodifiableMap(excludes));
+  }
+
+  @NotNull
+  public List<String> getCompilerOutputs() {
+    return myCompilerOutputs;
+  }
+
+  /**
+   * @return excluded {@code classpathEntries} to addresses of targets excluding them
+   */
+  @NotNull
+  public Map<String, String> findExcludedJars(@NotNull List<String> classpathEntries) {
+    return PantsClasspathRunConfigurationExtension.findAllExcludedJars(classpathEntries, myExcludes);
+  }
+}
@@ -19,14 +19,18 @@ import com.intellij.testIntegration.TestIntegrationUtils;
 import com.intellij.util.ObjectUtils;
 import com.intellij.util.containers.ContainerUtil;
 import com.twitter.intellij.pants.model.PantsTargetAddress;
+import com.twitter.intellij.pants.service.project.metadata.PantsModuleAddressIndex;
 import com.twitter.intellij.pants.util.PantsConstants;
 import com.twitter.intellij.pants.util.PantsUtil;
 import org.jetbrains.annotations.NotNull;
 
+import java.lang.ref.WeakReference;
 import java.util.Collections;
 import java.util.List;
 
 public class PantsTestRunConfigurationProducer extends RunConfigurationProducer<ExternalSystemRunConfiguration> {
+  private volatile ContextSettings myLastContextSettings = null;
+
   protected PantsTestRunConfigurationProducer() {
     super(PantsExternalTaskConfigurationType.getInstance());
   }
@@ -45,7 +49,7 @@ public class PantsTestRunConfigurationProducer extends RunConfigurationProducer<
     if (workingDir == null) {
       return false;
     }
-    final List<PantsTargetAddress> targets = PantsUtil.getTargetAddressesFromModule(module);
+    final List<PantsTargetAddress> targets = PantsModuleAddressIndex.getInstance(module.getProject()).getTargetAddresses(module);
     if (targets.isEmpty()) {
       return false;
     }
@@ -106,12 +110,28 @@ public class PantsTestRunConfigurationProducer extends RunConfigurationProducer<
     @NotNull ExternalSystemRunConfiguration configuration,
     @NotNull ConfigurationContext context
   ) {
+    return compareSettings(configuration.getSettings(), getSettings(configuration, context));
+  }
+
+  /**
+   * A context is compared with every existing configuration in a row so its settings are computed once.
+   */
+  @NotNull
+  private ExternalSystemTaskExecutionSettings getSettings(
+    @NotNull ExternalSystemRunConfiguration configuration,
+    @NotNull ConfigurationContext context
+  ) {
+    final ContextSettings lastContextSettings = myLastContextSettings;
+    if (lastContextSettings != null && lastContextSettings.myContext.get() == context) {
+      return lastContextSettings.mySettings;
+    }
     final ExternalSystemRunConfiguration tempConfig = new ExternalSystemRunConfiguration(
       PantsConstants.SYSTEM_ID, context.getProject(), configuration.getFactory(), configuration.getName()
     );
     final Ref<PsiElement> locationRef = new Ref<PsiElement>(context.getPsiLocation());
     setupConfigurationFromContext(tempConfig, context, locationRef);
-    return compareSettings(configuration.getSettings(), tempConfig.getSettings());
+    myLastContextSettings = new ContextSettings(context, tempConfig.getSettings());
+    return tempConfig.getSettings();
   }
 
   private boolean compareSettings(ExternalSystemTaskExecutionSettings settings1, ExternalSystemTaskExecutionSettings settings2) {
@@ -125,4 +145,15 @@ public class PantsTestRunConfigurationProducer extends RunConfigurationProducer<
 
     return true;
   }
+
+  private static class ContextSettings {
+    // contexts live while an action is performed, don't hold them
+    private final WeakReference<ConfigurationContext> myContext;
+    private final ExternalSystemTaskExecutionSettings mySettings;
+
+    private ContextSettings(@NotNull ConfigurationContext context, @NotNull ExternalSystemTaskExecutionSettings settings) {
+      myContext = new WeakReference<ConfigurationContext>(context);
+      mySettings = settings;
+    }
+  }
 }
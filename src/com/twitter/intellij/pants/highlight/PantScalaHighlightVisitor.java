@@ -19,13 +19,25 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.plugins.scala.annotator.createFromUsage.CreateTypeDefinitionQuickFix;
 import org.jetbrains.plugins.scala.lang.psi.api.ScalaFile;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A hack to extend fixes in Scala code. @fkorotkov asked JetBrains to add an extension point as we have for Java
  */
 public class PantScalaHighlightVisitor implements HighlightVisitor {
   private HighlightInfoHolder myHolder;
+  private CharSequence myFileText;
+  // the holder is flushed and cleared while the file is visited so remember the last examined info, not only the count
+  private int myProcessedInfoCount;
+  private HighlightInfo myLastProcessedInfo;
+  // the same class is usually unresolved in many places of a file so fixes are looked up once per name and pass
+  private final Map<String, List<PantsQuickFix>> myFixesByClassName = new HashMap<String, List<PantsQuickFix>>();
+  // the containing target and dependency rules are computed on the first unresolved name of a pass
+  private PantsUnresolvedReferenceFixFinder myFixFinder;
+  private boolean myFixFinderComputed;
 
   @Override
   public boolean suitableForFile(@NotNull PsiFile file) {
@@ -35,16 +47,23 @@ public class PantScalaHighlightVisitor implements HighlightVisitor {
   @Override
   public void visit(@NotNull PsiElement element) {
     final PsiFile containingFile = element.getContainingFile();
-    if (containingFile == null || DumbService.getInstance(myHolder.getProject()).isDumb()) {
+    if (myFileText == null || containingFile == null) {
       return;
     }
-    int infoSize = myHolder.size();
-    for (int i = 0; i < infoSize; i++) {
+    final int infoSize = myHolder.size();
+    final boolean holderContinued =
+      myProcessedInfoCount > 0 && myProcessedInfoCount <= infoSize && myHolder.get(myProcessedInfoCount - 1) == myLastProcessedInfo;
+    for (int i = holderContinued ? myProcessedInfoCount : 0; i < infoSize; i++) {
       final HighlightInfo info = myHolder.get(i);
-      tryToExtendInfo(info, containingFile);
+      if (info != myLastProcessedInfo) {
+        tryToExtendInfo(info, containingFile);
+      }
     }
+    myProcessedInfoCount = infoSize;
+    myLastProcessedInfo = infoSize > 0 ? myHolder.get(infoSize - 1) : null;
   }
 
+  // fixes are registered while the info is still in the holder, before the platform flushes it to the editor
   private void tryToExtendInfo(@NotNull HighlightInfo info, @NotNull PsiFile containingFile) {
     List<Pair<HighlightInfo.IntentionActionDescriptor, TextRange>> actionRanges = info.quickFixActionRanges;
     if (actionRanges == null) {
@@ -55,9 +74,8 @@ public class PantScalaHighlightVisitor implements HighlightVisitor {
       final HighlightInfo.IntentionActionDescriptor actionDescriptor = actionAndRange.getFirst();
       final IntentionAction action = actionDescriptor.getAction();
       if (action instanceof CreateTypeDefinitionQuickFix) {
-        final String className = textRange.substring(containingFile.getText());
-        final List<PantsQuickFix> missingDependencyFixes =
-          PantsUnresolvedReferenceFixFinder.findMissingDependencies(className, containingFile);
+        final String className = textRange.subSequence(myFileText).toString();
+        final List<PantsQuickFix> missingDependencyFixes = findMissingDependencies(className, containingFile);
         for (PantsQuickFix fix : missingDependencyFixes) {
           info.registerFix(fix, null, fix.getName(), textRange, null);
         }
@@ -69,6 +87,23 @@ public class PantScalaHighlightVisitor implements HighlightVisitor {
     }
   }
 
+  @NotNull
+  private List<PantsQuickFix> findMissingDependencies(@NotNull String className, @NotNull PsiFile containingFile) {
+    if (!myFixFinderComputed) {
+      myFixFinder = PantsUnresolvedReferenceFixFinder.forFile(containingFile);
+      myFixFinderComputed = true;
+    }
+    if (myFixFinder == null) {
+      return Collections.emptyList();
+    }
+    List<PantsQuickFix> result = myFixesByClassName.get(className);
+    if (result == null) {
+      result = myFixFinder.findMissingDependencies(className);
+      myFixesByClassName.put(className, result);
+    }
+    return result;
+  }
+
   @Override
   public boolean analyze(
     @NotNull PsiFile file,
@@ -77,11 +112,18 @@ public class PantScalaHighlightVisitor implements HighlightVisitor {
     @NotNull Runnable action
   ) {
     myHolder = holder;
+    myFileText = DumbService.getInstance(file.getProject()).isDumb() ? null : file.getViewProvider().getContents();
     try {
       action.run();
     }
     finally {
       myHolder = null;
+      myFileText = null;
+      myProcessedInfoCount = 0;
+      myLastProcessedInfo = null;
+      myFixesByClassName.clear();
+      myFixFinder = null;
+      myFixFinderComputed = false;
     }
     return true;
   }
@@ -0,0 +1,210 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.index;
+
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.IOUtil;
+import com.intellij.util.io.KeyDescriptor;
+import com.jetbrains.python.PythonFileType;
+import com.jetbrains.python.psi.PyCallExpression;
+import com.jetbrains.python.psi.PyExpression;
+import com.jetbrains.python.psi.PyExpressionStatement;
+import com.twitter.intellij.pants.util.PantsPsiUtil;
+import com.twitter.intellij.pants.util.PantsUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Maps a directory of a BUILD file, i.e. the path part of target addresses, to target definitions in the BUILD file:
+ * target name to an offset and a type of its definition.
+ * So resolving references to targets doesn't walk PSI of target BUILD files.
+ */
+public class PantsBuildTargetIndex extends FileBasedIndexExtension<String, Map<String, PantsBuildTargetIndex.TargetDefinition>> {
+  public static final ID<String, Map<String, TargetDefinition>> NAME = ID.create("PantsBuildTargetIndex");
+
+  /**
+   * @return target names to their definitions in {@code buildFile}
+   */
+  @NotNull
+  public static Map<String, TargetDefinition> getTargets(@Nullable PsiFile buildFile) {
+    final VirtualFile virtualFile = buildFile != null ? buildFile.getOriginalFile().getVirtualFile() : null;
+    final VirtualFile parent = virtualFile != null ? virtualFile.getParent() : null;
+    if (parent == null) {
+      return Collections.emptyMap();
+    }
+    final Project project = buildFile.getProject();
+    if (DumbService.isDumb(project)) {
+      return collectDefinitions(buildFile);
+    }
+    final List<Map<String, TargetDefinition>> values =
+      FileBasedIndex.getInstance().getValues(NAME, parent.getPath(), GlobalSearchScope.fileScope(project, virtualFile));
+    return values.isEmpty() ? Collections.<String, TargetDefinition>emptyMap() : values.iterator().next();
+  }
+
+  /**
+   * Finds the definition by its offset in the index and checks it against PSI: the index can be behind the document
+   * or miss the file, so PSI is walked if the offset doesn't point at a target named {@code targetName}.
+   */
+  @Nullable
+  public static PyCallExpression findTarget(@Nullable PsiFile buildFile, @NotNull String targetName) {
+    if (buildFile == null) {
+      return null;
+    }
+    final TargetDefinition definition = getTargets(buildFile).get(targetName);
+    final PsiElement element = definition != null ? buildFile.findElementAt(definition.getOffset()) : null;
+    final PyExpressionStatement statement = PsiTreeUtil.getParentOfType(element, PyExpressionStatement.class);
+    final Pair<String, PyCallExpression> target = statement != null ? PantsPsiUtil.findTarget(statement) : null;
+    if (target != null && targetName.equals(target.getFirst())) {
+      return target.getSecond();
+    }
+    return PantsPsiUtil.findTargets(buildFile).get(targetName);
+  }
+
+  @NotNull
+  @Override
+  public ID<String, Map<String, TargetDefinition>> getName() {
+    return NAME;
+  }
+
+  @NotNull
+  @Override
+  public DataIndexer<String, Map<String, TargetDefinition>, FileContent> getIndexer() {
+    return myIndexer;
+  }
+
+  @NotNull
+  @Override
+  public KeyDescriptor<String> getKeyDescriptor() {
+    return new EnumeratorStringDescriptor();
+  }
+
+  @NotNull
+  @Override
+  public DataExternalizer<Map<String, TargetDefinition>> getValueExternalizer() {
+    return myValueExternalizer;
+  }
+
+  @NotNull
+  @Override
+  public FileBasedIndex.InputFilter getInputFilter() {
+    return new DefaultFileTypeSpecificInputFilter(PythonFileType.INSTANCE) {
+      @Override
+      public boolean acceptInput(@NotNull VirtualFile file) {
+        return PantsUtil.isBUILDFileName(file.getName());
+      }
+    };
+  }
+
+  @Override
+  public boolean dependsOnFileContent() {
+    return true;
+  }
+
+  @Override
+  public int getVersion() {
+    return 0;
+  }
+
+  @NotNull
+  private static Map<String, TargetDefinition> collectDefinitions(@NotNull PsiFile buildFile) {
+    final Map<String, TargetDefinition> result = new LinkedHashMap<String, TargetDefinition>();
+    for (PyExpressionStatement statement : PsiTreeUtil.findChildrenOfType(buildFile, PyExpressionStatement.class)) {
+      final Pair<String, PyCallExpression> nameExpressionPair = PantsPsiUtil.findTarget(statement);
+      final PyExpression callee = nameExpressionPair != null ? nameExpressionPair.getSecond().getCallee() : null;
+      if (callee != null) {
+        result.put(nameExpressionPair.getFirst(), new TargetDefinition(callee.getTextOffset(), callee.getText()));
+      }
+    }
+    return result;
+  }
+
+  private static final DataIndexer<String, Map<String, TargetDefinition>, FileContent> myIndexer =
+    new DataIndexer<String, Map<String, TargetDefinition>, FileContent>() {
+      @NotNull
+      @Override
+      public Map<String, Map<String, TargetDefinition>> map(@NotNull FileContent inputData) {
+        final VirtualFile parent = inputData.getFile().getParent();
+        if (parent == null) {
+          return Collections.emptyMap();
+        }
+        return Collections.singletonMap(parent.getPath(), collectDefinitions(inputData.getPsiFile()));
+      }
+    };
+
+  private static final DataExternalizer<Map<String, TargetDefinition>> myValueExternalizer =
+    new DataExternalizer<Map<String, TargetDefinition>>() {
+      @Override
+      public void save(@NotNull DataOutput out, Map<String, TargetDefinition> value) throws IOException {
+        out.writeInt(value.size());
+        for (Map.Entry<String, TargetDefinition> entry : value.entrySet()) {
+          IOUtil.writeUTF(out, entry.getKey());
+          out.writeInt(entry.getValue().getOffset());
+          IOUtil.writeUTF(out, entry.getValue().getType());
+        }
+      }
+
+      @Override
+      public Map<String, TargetDefinition> read(@NotNull DataInput in) throws IOException {
+        final int size = in.readInt();
+        final Map<String, TargetDefinition> result = new LinkedHashMap<String, TargetDefinition>(size);
+        for (int i = 0; i < size; i++) {
+          final String name = IOUtil.readUTF(in);
+          final int offset = in.readInt();
+          result.put(name, new TargetDefinition(offset, IOUtil.readUTF(in)));
+        }
+        return result;
+      }
+    };
+
+  public static class TargetDefinition {
+    private final int myOffset;
+    @NotNull
+    private final String myType;
+
+    public TargetDefinition(int offset, @NotNull String type) {
+      myOffset = offset;
+      myType = type;
+    }
+
+    /**
+     * @return an offset of the target type, e.g. {@code java_library} in {@code java_library(name='foo')}
+     */
+    public int getOffset() {
+      return myOffset;
+    }
+
+    @NotNull
+    public String getType() {
+      return myType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      final TargetDefinition that = (TargetDefinition)o;
+      return myOffset == that.myOffset && myType.equals(that.myType);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * myOffset + myType.hashCode();
+    }
+  }
+}
@@ -0,0 +1,160 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.index;
+
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Maps simple names of classes, interfaces, traits and objects to Java and Scala source files declaring them.
+ * A file is mapped to its owning target through its module, see {@code PantsUnresolvedReferenceFixFinder},
+ * so a missing dependency is found without creating PSI for candidate classes.
+ * <p/>
+ * Jar libraries aren't indexed: jar_library targets are inlined into their dependents during import
+ * so there is no target to add for a class from a jar.
+ */
+public class PantsClassNameIndex extends ScalarIndexExtension<String> {
+  public static final ID<String, Void> NAME = ID.create("PantsClassNameIndex");
+
+  private static final Set<String> EXTENSIONS = ContainerUtil.newHashSet("java", "scala");
+  private static final Set<String> DECLARATION_KEYWORDS = ContainerUtil.newHashSet("class", "interface", "enum", "trait", "object");
+
+  @NotNull
+  public static Collection<VirtualFile> getFilesDeclaringClass(@NotNull String className, @NotNull GlobalSearchScope scope) {
+    return FileBasedIndex.getInstance().getContainingFiles(NAME, className, scope);
+  }
+
+  @NotNull
+  @Override
+  public ID<String, Void> getName() {
+    return NAME;
+  }
+
+  @NotNull
+  @Override
+  public DataIndexer<String, Void, FileContent> getIndexer() {
+    return myIndexer;
+  }
+
+  @NotNull
+  @Override
+  public KeyDescriptor<String> getKeyDescriptor() {
+    return new EnumeratorStringDescriptor();
+  }
+
+  @NotNull
+  @Override
+  public FileBasedIndex.InputFilter getInputFilter() {
+    return new FileBasedIndex.InputFilter() {
+      @Override
+      public boolean acceptInput(@NotNull VirtualFile file) {
+        return !file.isDirectory() && EXTENSIONS.contains(file.getExtension());
+      }
+    };
+  }
+
+  @Override
+  public boolean dependsOnFileContent() {
+    return true;
+  }
+
+  @Override
+  public int getVersion() {
+    return 0;
+  }
+
+  private static final DataIndexer<String, Void, FileContent> myIndexer = new DataIndexer<String, Void, FileContent>() {
+    @NotNull
+    @Override
+    public Map<String, Void> map(@NotNull FileContent inputData) {
+      final Map<String, Void> result = new HashMap<String, Void>();
+      for (String className : findClassNames(inputData.getContentAsText())) {
+        result.put(className, null);
+      }
+      return result;
+    }
+  };
+
+  /**
+   * Finds names following declaration keywords outside of comments and literals.
+   * Works for both Java and Scala without their parsers, nested declarations are included too.
+   */
+  @NotNull
+  static Set<String> findClassNames(@NotNull CharSequence text) {
+    final Set<String> result = new HashSet<String>();
+    String previousWord = null;
+    int i = 0;
+    while (i < text.length()) {
+      final char c = text.charAt(i);
+      if (Character.isJavaIdentifierStart(c)) {
+        int end = i + 1;
+        while (end < text.length() && Character.isJavaIdentifierPart(text.charAt(end))) {
+          end++;
+        }
+        final String word = text.subSequence(i, end).toString();
+        if (previousWord != null && DECLARATION_KEYWORDS.contains(previousWord) && !DECLARATION_KEYWORDS.contains(word)) {
+          result.add(word);
+        }
+        previousWord = word;
+        i = end;
+      }
+      else if (c == '/' && i + 1 < text.length() && text.charAt(i + 1) == '/') {
+        i = skipTo(text, i + 2, "\n");
+      }
+      else if (c == '/' && i + 1 < text.length() && text.charAt(i + 1) == '*') {
+        i = skipTo(text, i + 2, "*/");
+      }
+      else if (c == '"') {
+        final boolean multiline = StringUtil.startsWith(text, i, "\"\"\"");
+        i = multiline ? skipTo(text, i + 3, "\"\"\"") : skipLiteral(text, i + 1, '"');
+        previousWord = null;
+      }
+      else if (c == '\'' && i + 2 < text.length() && (text.charAt(i + 1) == '\\' || text.charAt(i + 2) == '\'')) {
+        // a char literal, not a Scala symbol
+        i = skipLiteral(text, i + 1, '\'');
+        previousWord = null;
+      }
+      else {
+        if (!Character.isWhitespace(c)) {
+          previousWord = null;
+        }
+        i++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return an index after {@code end} or the text length
+   */
+  private static int skipTo(@NotNull CharSequence text, int start, @NotNull String end) {
+    for (int i = start; i + end.length() <= text.length(); i++) {
+      if (StringUtil.startsWith(text, i, end)) {
+        return i + end.length();
+      }
+    }
+    return text.length();
+  }
+
+  private static int skipLiteral(@NotNull CharSequence text, int start, char quote) {
+    for (int i = start; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      if (c == '\\') {
+        i++;
+      }
+      else if (c == quote || c == '\n') {
+        return i + 1;
+      }
+    }
+    return text.length();
+  }
+}
@@ -3,30 +3,41 @@
 
 package com.twitter.intellij.pants.index;
 
+import com.intellij.lexer.Lexer;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.CharsetToolkit;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
 import com.intellij.psi.PsiPolyVariantReference;
 import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.util.containers.ContainerUtil;
-import com.intellij.util.containers.Convertor;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.TokenSet;
 import com.intellij.util.indexing.*;
 import com.intellij.util.io.EnumeratorStringDescriptor;
 import com.intellij.util.io.KeyDescriptor;
+import com.jetbrains.python.PyTokenTypes;
 import com.jetbrains.python.PythonFileType;
+import com.jetbrains.python.lexer.PythonLexer;
 import com.jetbrains.python.psi.PyFile;
 import com.jetbrains.python.psi.PyReferenceExpression;
 import com.twitter.intellij.pants.util.PantsPsiUtil;
 import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 
 public class PantsTargetIndex extends ScalarIndexExtension<String> {
   public static final ID<String, Void> NAME = ID.create("PantsTargetIndex");
 
+  private static final String BUILD_FILE_ALIASES = "build_file_aliases";
+  private static final TokenSet SKIPPED_TOKENS = TokenSet.orSet(
+    PyTokenTypes.WHITESPACE_OR_LINEBREAK, TokenSet.create(PyTokenTypes.END_OF_LINE_COMMENT, PyTokenTypes.BACKSLASH)
+  );
+
   public static Collection<String> getTargets(@NotNull Project project) {
     return FileBasedIndex.getInstance().getAllKeys(NAME, project);
   }
@@ -87,27 +98,134 @@ public class PantsTargetIndex extends ScalarIndexExtension<String> {
 
   @Override
   public int getVersion() {
-    return 0;
+    return 1;
   }
 
+  private static final byte[] BUILD_FILE_ALIASES_BYTES = BUILD_FILE_ALIASES.getBytes(CharsetToolkit.UTF8_CHARSET);
+
   private static DataIndexer<String, Void, FileContent> myIndexer = new DataIndexer<String, Void, FileContent>() {
     @Override
     @NotNull
     public Map<String, Void> map(final FileContent inputData) {
-      final PsiFile psiFile = inputData.getPsiFile();
-      if (psiFile instanceof PyFile) {
-        final Map<String, PyReferenceExpression> targetDefinitions = PantsPsiUtil.findTargetDefinitions((PyFile)psiFile);
-        return ContainerUtil.newMapFromKeys(
-          targetDefinitions.keySet().iterator(),
-          new Convertor<String, Void>() {
-            @Override
-            public Void convert(String o) {
-              return null;
-            }
-          }
-        );
-      }
-      return Collections.emptyMap();
+      // most of Python files don't define aliases so don't even decode them
+      if (!containsBytes(inputData.getContent(), BUILD_FILE_ALIASES_BYTES)) {
+        return Collections.emptyMap();
+      }
+      final Map<String, Void> result = new HashMap<String, Void>();
+      for (String alias : findTargetAliases(inputData.getContentAsText())) {
+        result.put(alias, null);
+      }
+      return result;
     }
   };
+
+  private static boolean containsBytes(@NotNull byte[] content, @NotNull byte[] bytes) {
+    outer:
+    for (int i = 0; i + bytes.length <= content.length; i++) {
+      for (int j = 0; j < bytes.length; j++) {
+        if (content[i + j] != bytes[j]) {
+          continue outer;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Finds the same aliases as {@link PantsPsiUtil#findTargetDefinitions(PyFile)} with the lexer only, i.e. string keys of
+   * dict literals passed as keyword arguments to a call returned from {@code build_file_aliases}:
+   * <pre>
+   * def build_file_aliases():
+   *   return BuildFileAliases.create(
+   *     targets={
+   *       'java_library': JavaLibrary,
+   *     },
+   *   )
+   * </pre>
+   */
+  @NotNull
+  static Set<String> findTargetAliases(@NotNull CharSequence text) {
+    final Lexer lexer = new PythonLexer();
+    lexer.start(text);
+    if (!skipTo(lexer, PyTokenTypes.DEF_KEYWORD, BUILD_FILE_ALIASES) || !skipTo(lexer, PyTokenTypes.RETURN_KEYWORD, null)) {
+      return Collections.emptySet();
+    }
+    final Set<String> result = new HashSet<String>();
+    int parenthesesDepth = 0;
+    int bracesDepth = 0;
+    IElementType previous = null;
+    String pendingKey = null;
+    for (lexer.advance(); lexer.getTokenType() != null; lexer.advance()) {
+      final IElementType tokenType = lexer.getTokenType();
+      if (SKIPPED_TOKENS.contains(tokenType)) {
+        continue;
+      }
+      if (tokenType == PyTokenTypes.LPAR || tokenType == PyTokenTypes.LBRACKET) {
+        parenthesesDepth++;
+      }
+      else if (tokenType == PyTokenTypes.RPAR || tokenType == PyTokenTypes.RBRACKET) {
+        if (--parenthesesDepth <= 0) {
+          break;
+        }
+      }
+      else if (tokenType == PyTokenTypes.LBRACE) {
+        // only dicts passed as keyword arguments, e.g. targets={...}
+        if (bracesDepth > 0 || previous == PyTokenTypes.EQ) {
+          bracesDepth++;
+        }
+      }
+      else if (tokenType == PyTokenTypes.RBRACE) {
+        bracesDepth = Math.max(0, bracesDepth - 1);
+      }
+      else if (bracesDepth == 1 && PyTokenTypes.STRING_NODES.contains(tokenType) &&
+               (previous == PyTokenTypes.LBRACE || previous == PyTokenTypes.COMMA)) {
+        // a key if it's followed by a colon
+        pendingKey = unquote(lexer.getTokenText());
+        previous = tokenType;
+        continue;
+      }
+      else if (tokenType == PyTokenTypes.COLON && pendingKey != null) {
+        result.add(pendingKey);
+      }
+      else if (parenthesesDepth == 0 && tokenType != PyTokenTypes.IDENTIFIER && tokenType != PyTokenTypes.DOT) {
+        // return statement isn't a call
+        break;
+      }
+      pendingKey = null;
+      previous = tokenType;
+    }
+    return result;
+  }
+
+  /**
+   * Advances {@code lexer} to a {@code tokenType} token, followed by {@code name} identifier if it's not {@code null}.
+   */
+  private static boolean skipTo(@NotNull Lexer lexer, @NotNull IElementType tokenType, @Nullable String name) {
+    for (; lexer.getTokenType() != null; lexer.advance()) {
+      if (lexer.getTokenType() != tokenType) {
+        continue;
+      }
+      if (name == null) {
+        return true;
+      }
+      lexer.advance();
+      while (lexer.getTokenType() != null && SKIPPED_TOKENS.contains(lexer.getTokenType())) {
+        lexer.advance();
+      }
+      if (lexer.getTokenType() == PyTokenTypes.IDENTIFIER && name.equals(lexer.getTokenText())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @NotNull
+  private static String unquote(@NotNull String literal) {
+    int prefixLength = 0;
+    while (prefixLength < literal.length() && Character.isLetter(literal.charAt(prefixLength))) {
+      prefixLength++;
+    }
+    return StringUtil.unquoteString(literal.substring(prefixLength));
+  }
 }
@@ -124,6 +124,12 @@ public class ProjectFilesViewPane extends AbstractProjectViewPSIPane {
       return new ProjectFilesViewProjectNode(project, settings);
     }
 
+    @Override
+    public boolean isToBuildChildrenInBackground(Object element) {
+      // listing huge folders shouldn't freeze UI
+      return true;
+    }
+
     @Override
     public boolean isShowExcludedFiles() {
       return myShowExcludedFiles;
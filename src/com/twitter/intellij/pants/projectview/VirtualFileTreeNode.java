@@ -12,22 +12,25 @@ import com.intellij.ide.projectView.impl.ProjectViewImpl;
 import com.intellij.ide.projectView.impl.nodes.PsiDirectoryNode;
 import com.intellij.ide.projectView.impl.nodes.PsiFileNode;
 import com.intellij.ide.util.treeView.AbstractTreeNode;
-import com.intellij.openapi.module.ModuleUtil;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.util.Condition;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDirectory;
-import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
-import com.intellij.util.Function;
 import com.intellij.util.containers.ContainerUtil;
 import com.twitter.intellij.pants.components.PantsProjectCache;
 import com.twitter.intellij.pants.components.impl.PantsProjectCacheImpl;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -60,49 +63,72 @@ public class VirtualFileTreeNode extends ProjectViewNode<VirtualFile> {
     return myFile.isDirectory() && VfsUtil.isAncestor(myFile, file, true);
   }
 
+  @Override
+  public boolean isAlwaysShowPlus() {
+    // children of a folder are computed only when it's expanded, VFS children are cached so it's cheap
+    // filtered out children may still make the node expand to nothing
+    final VirtualFile virtualFile = getValue();
+    return virtualFile.isValid() && virtualFile.isDirectory() && virtualFile.getChildren().length > 0;
+  }
+
   @Override
   protected void update(PresentationData presentation) {
-    final PsiManager psiManager = PsiManager.getInstance(myProject);
+    // nodes for files with PSI and folders in modules are PsiFileNode/PsiDirectoryNode, see getChildren()
+    // so a cheap presentation from VFS is enough here
     final VirtualFile virtualFile = getValue();
-    final PsiFile psiElement = virtualFile.isValid() ? psiManager.findFile(virtualFile) : null;
-    if (psiElement instanceof PsiDirectory) {
-      new PsiDirectoryNode(myProject, (PsiDirectory)psiElement, getSettings()).update(presentation);
-    }
-    else if (psiElement != null) {
-      new PsiFileNode(myProject, psiElement, getSettings()).update(presentation);
-    }
-    else {
-      presentation.setPresentableText(virtualFile.getName());
-      presentation.setIcon(virtualFile.isDirectory() ? AllIcons.Nodes.Folder : virtualFile.getFileType().getIcon());
-    }
+    presentation.setPresentableText(virtualFile.getName());
+    presentation.setIcon(virtualFile.isDirectory() ? AllIcons.Nodes.Folder : virtualFile.getFileType().getIcon());
   }
 
   @NotNull
   @Override
   public Collection<? extends AbstractTreeNode> getChildren() {
-    final PsiManager psiManager = PsiManager.getInstance(myProject);
-    final VirtualFile virtualFile = getValue();
-    return ContainerUtil.map(
-      virtualFile.isValid() && virtualFile.isDirectory() ? getFilteredChildren(virtualFile) : Collections.<VirtualFile>emptyList(),
-      new Function<VirtualFile, AbstractTreeNode>() {
+    // children are built in background, see ProjectFilesViewPane
+    return ApplicationManager.getApplication().runReadAction(
+      new Computable<Collection<? extends AbstractTreeNode>>() {
         @Override
-        public AbstractTreeNode fun(VirtualFile file) {
-          final PsiElement psiElement = file.isDirectory() ? psiManager.findDirectory(file) : psiManager.findFile(file);
-          if (psiElement instanceof PsiDirectory && ModuleUtil.findModuleForPsiElement(psiElement) != null) {
-            // PsiDirectoryNode doesn't render files outside of a project
-            // let's use PsiDirectoryNode only for folders in a modules
-            return new PsiDirectoryNode(myProject, (PsiDirectory)psiElement, getSettings());
-          } else if (psiElement instanceof PsiFile) {
-            return new PsiFileNode(myProject, (PsiFile)psiElement, getSettings());
-          } else {
-            return new VirtualFileTreeNode(myProject, file, getSettings());
+        public Collection<? extends AbstractTreeNode> compute() {
+          final VirtualFile virtualFile = getValue();
+          if (!virtualFile.isValid() || !virtualFile.isDirectory()) {
+            return Collections.emptyList();
           }
+          return createChildNodes(getFilteredChildren(virtualFile));
         }
       }
     );
   }
 
+  @NotNull
+  private List<AbstractTreeNode> createChildNodes(@NotNull List<VirtualFile> files) {
+    final PsiManager psiManager = PsiManager.getInstance(myProject);
+    final ProjectFileIndex fileIndex = ProjectRootManager.getInstance(myProject).getFileIndex();
+    final List<AbstractTreeNode> result = new ArrayList<AbstractTreeNode>(files.size());
+    for (VirtualFile file : files) {
+      ProgressManager.checkCanceled();
+      if (file.isDirectory()) {
+        // PsiDirectoryNode doesn't render files outside of a project
+        // let's use PsiDirectoryNode only for folders in a modules
+        final PsiDirectory psiDirectory = fileIndex.getModuleForFile(file) != null ? psiManager.findDirectory(file) : null;
+        result.add(
+          psiDirectory != null ?
+          new PsiDirectoryNode(myProject, psiDirectory, getSettings()) :
+          new VirtualFileTreeNode(myProject, file, getSettings())
+        );
+      }
+      else {
+        final PsiFile psiFile = psiManager.findFile(file);
+        result.add(
+          psiFile != null ?
+          new PsiFileNode(myProject, psiFile, getSettings()) :
+          new VirtualFileTreeNode(myProject, file, getSettings())
+        );
+      }
+    }
+    return result;
+  }
+
   private List<VirtualFile> getFilteredChildren(@NotNull VirtualFile folder) {
+    final PantsProjectCache projectCache = getProjectCacheIfFiltered();
     return ContainerUtil.filter(
       folder.getChildren(),
       new Condition<VirtualFile>() {
@@ -113,7 +139,7 @@ public class VirtualFileTreeNode extends ProjectViewNode<VirtualFile> {
           }
           //noinspection SimplifiableIfStatement
           if (file.isDirectory()) {
-            return shouldIncludeDirectory(file);
+            return projectCache == null || projectCache.folderContainsSourceRoot(file);
           }
           return !file.getName().startsWith(".");
         }
@@ -121,12 +147,15 @@ public class VirtualFileTreeNode extends ProjectViewNode<VirtualFile> {
     );
   }
 
-  private boolean shouldIncludeDirectory(VirtualFile dir) {
+  /**
+   * @return {@code null} if all directories should be shown.
+   */
+  @Nullable
+  private PantsProjectCache getProjectCacheIfFiltered() {
     final ViewSettings viewSettings = getSettings();
     if (viewSettings instanceof PantsViewSettings && ((PantsViewSettings)viewSettings).isShowOnlyLoadedFiles()) {
-      final PantsProjectCache projectCache = PantsProjectCacheImpl.getInstance(getProject());
-      return projectCache.folderContainsSourceRoot(dir);
+      return PantsProjectCacheImpl.getInstance(getProject());
     }
-    return true;
+    return null;
   }
 }
@@ -12,12 +12,14 @@ import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
 import com.intellij.util.Function;
 import com.intellij.util.containers.ContainerUtil;
-import com.twitter.intellij.pants.util.PantsPsiUtil;
+import com.twitter.intellij.pants.index.PantsBuildTargetIndex;
 import com.twitter.intellij.pants.util.PantsUtil;
 import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Map;
+
 public class PantsTargetReference extends PantsPsiReferenceBase {
   public PantsTargetReference(@NotNull PsiElement element, @NotNull TextRange range, @Nls String text, @Nls String relativePath) {
     super(element, range, text, relativePath);
@@ -41,11 +43,11 @@ public class PantsTargetReference extends PantsPsiReferenceBase {
   @Override
   public Object[] getVariants() {
     return ContainerUtil.map2Array(
-      PantsPsiUtil.findTargets(findBuildFile()).keySet(),
-      new Function<String, Object>() {
+      PantsBuildTargetIndex.getTargets(findBuildFile()).entrySet(),
+      new Function<Map.Entry<String, PantsBuildTargetIndex.TargetDefinition>, Object>() {
         @Override
-        public Object fun(String targetName) {
-          return LookupElementBuilder.create(targetName);
+        public Object fun(Map.Entry<String, PantsBuildTargetIndex.TargetDefinition> entry) {
+          return LookupElementBuilder.create(entry.getKey()).withTypeText(entry.getValue().getType());
         }
       }
     );
@@ -54,6 +56,6 @@ public class PantsTargetReference extends PantsPsiReferenceBase {
   @Nullable
   @Override
   public PsiElement resolve() {
-    return PantsPsiUtil.findTargets(findBuildFile()).get(getText());
+    return PantsBuildTargetIndex.findTarget(findBuildFile(), getText());
   }
 }
@@ -4,13 +4,19 @@
 package com.twitter.intellij.pants.quickfix;
 
 import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.externalSystem.util.ExternalSystemConstants;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleUtil;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.DependencyScope;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.roots.ModuleRootModificationUtil;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
@@ -19,8 +25,10 @@ import com.intellij.psi.codeStyle.CodeStyleManager;
 import com.intellij.util.IncorrectOperationException;
 import com.jetbrains.python.psi.*;
 import com.twitter.intellij.pants.PantsBundle;
+import com.twitter.intellij.pants.index.PantsBuildTargetIndex;
 import com.twitter.intellij.pants.model.PantsTargetAddress;
-import com.twitter.intellij.pants.util.PantsPsiUtil;
+import com.twitter.intellij.pants.service.project.metadata.PantsModuleAddressIndex;
+import com.twitter.intellij.pants.settings.PantsSettings;
 import com.twitter.intellij.pants.util.PantsUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -54,7 +62,7 @@ public class AddPantsTargetDependencyFix extends PantsQuickFix {
   @Override
   public boolean isAvailable(@NotNull Project project, Editor editor, PsiFile file) {
     final Module module = ModuleUtil.findModuleForPsiElement(file);
-    return module != null && PantsUtil.findBUILDFileForModule(module) != null;
+    return module != null && PantsModuleAddressIndex.getInstance(project).findBUILDFile(module) != null;
   }
 
   @Override
@@ -65,26 +73,25 @@ public class AddPantsTargetDependencyFix extends PantsQuickFix {
   @Override
   public void invoke(@NotNull Project project, @Nullable Editor editor, @NotNull PsiFile psiFile) throws IncorrectOperationException {
     final Module module = ModuleUtil.findModuleForPsiElement(psiFile);
-    final VirtualFile buildFile = module != null ? PantsUtil.findBUILDFileForModule(module) : null;
+    final VirtualFile buildFile = module != null ? PantsModuleAddressIndex.getInstance(project).findBUILDFile(module) : null;
     final PsiFile psiBuildFile = buildFile != null ? PsiManager.getInstance(project).findFile(buildFile) : null;
     if (psiBuildFile != null && StringUtil.isNotEmpty(myAddress.getTargetName())) {
-      doInsert(psiBuildFile, myAddress.getTargetName(), myAddressToAdd);
+      doInsert(psiBuildFile);
     }
   }
 
-  public void doInsert(
-    @NotNull PsiFile buildFile,
-    @NotNull final String targetName,
-    @NotNull PantsTargetAddress addressToAdd
-  ) throws IncorrectOperationException {
-    final PyCallExpression targetDefinitionExpression = PantsPsiUtil.findTargets(buildFile).get(targetName);
+  /**
+   * Adds {@link #myAddressToAdd} to dependencies of the {@link #myAddress} target defined in {@code buildFile}.
+   */
+  public void doInsert(@NotNull PsiFile buildFile) throws IncorrectOperationException {
+    final PyCallExpression targetDefinitionExpression = PantsBuildTargetIndex.findTarget(buildFile, myAddress.getTargetName());
     if (targetDefinitionExpression == null) {
       return;
     }
 
     final Project project = buildFile.getProject();
     final PyElementGenerator generator = PyElementGenerator.getInstance(project);
-    final String targetAddressStringToAdd = addressToAdd.toString();
+    final String targetAddressStringToAdd = myAddressToAdd.toString();
 
     final PyExpression dependenciesArgument = targetDefinitionExpression.getKeywordArgument("dependencies");
     if (dependenciesArgument == null) {
@@ -112,7 +119,45 @@ public class AddPantsTargetDependencyFix extends PantsQuickFix {
       }
       CodeStyleManager.getInstance(project).reformat(dependenciesArgument);
     }
-    FileDocumentManager.getInstance().saveAllDocuments(); // dump VFS to FS before refreshing
-    PantsUtil.refreshAllProjects(project);
+    final Document document = PsiDocumentManager.getInstance(project).getDocument(buildFile);
+    if (document != null) {
+      FileDocumentManager.getInstance().saveDocument(document); // dump the BUILD file to FS before refreshing
+    }
+    final Module module = addModuleDependency(project);
+    final String linkedProjectPath = findProjectToRefresh(project, module);
+    if (linkedProjectPath != null) {
+      // the dependency is already in the model so only confirm it by exporting the project of the edited target
+      PantsUtil.refreshProject(project, linkedProjectPath);
+    }
+    else {
+      PantsUtil.refreshAllProjects(project);
+    }
+  }
+
+  /**
+   * @return the linked project of {@code module} or null if all projects have to be refreshed
+   */
+  @Nullable
+  static String findProjectToRefresh(@NotNull Project project, @Nullable Module module) {
+    final String linkedProjectPath = module != null ? module.getOptionValue(ExternalSystemConstants.LINKED_PROJECT_PATH_KEY) : null;
+    return linkedProjectPath != null && PantsSettings.getInstance(project).getLinkedProjectSettings(linkedProjectPath) != null ?
+           linkedProjectPath : null;
+  }
+
+  /**
+   * Adds a dependency on the module of {@link #myAddressToAdd} right away so references resolve before the project is refreshed.
+   *
+   * @return the module of the edited target
+   */
+  @Nullable
+  private Module addModuleDependency(@NotNull Project project) {
+    final PantsModuleAddressIndex addressIndex = PantsModuleAddressIndex.getInstance(project);
+    final Module module = addressIndex.findModule(myAddress);
+    final Module dependency = addressIndex.findModule(myAddressToAdd);
+    if (module != null && dependency != null && module != dependency && !ModuleRootManager.getInstance(module).isDependsOn(dependency)) {
+      // module dependencies are exported as in PantsResolver
+      ModuleRootModificationUtil.addDependency(module, dependency, DependencyScope.COMPILE, true);
+    }
+    return module;
   }
 }
@@ -4,26 +4,25 @@
 package com.twitter.intellij.pants.quickfix;
 
 import com.intellij.openapi.module.Module;
-import com.intellij.openapi.module.ModuleUtil;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.packageDependencies.DependencyValidationManager;
-import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 import com.intellij.psi.PsiReference;
 import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.search.PsiShortNamesCache;
+import com.twitter.intellij.pants.index.PantsClassNameIndex;
 import com.twitter.intellij.pants.model.PantsTargetAddress;
-import com.twitter.intellij.pants.util.PantsUtil;
+import com.twitter.intellij.pants.service.project.metadata.PantsModuleAddressIndex;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 public class PantsUnresolvedReferenceFixFinder {
   @NotNull
@@ -37,39 +36,88 @@ public class PantsUnresolvedReferenceFixFinder {
 
   @NotNull
   public static List<PantsQuickFix> findMissingDependencies(@NotNull String referenceName, @NotNull PsiFile containingFile) {
+    final PantsUnresolvedReferenceFixFinder finder = forFile(containingFile);
+    return finder != null ? finder.findMissingDependencies(referenceName) : Collections.<PantsQuickFix>emptyList();
+  }
+
+  /**
+   * The containing target and dependency rules are computed here once,
+   * so a finder can be reused for all unresolved names of a file during a highlighting pass.
+   *
+   * @return {@code null} if the file doesn't belong to a single target
+   */
+  @Nullable
+  public static PantsUnresolvedReferenceFixFinder forFile(@NotNull PsiFile containingFile) {
     final VirtualFile containingClassFile = containingFile.getVirtualFile();
-    if (containingClassFile == null) return Collections.emptyList();
+    if (containingClassFile == null) return null;
 
     final Project project = containingFile.getProject();
 
     final ProjectFileIndex fileIndex = ProjectRootManager.getInstance(project).getFileIndex();
     final Module containingModule = fileIndex.getModuleForFile(containingClassFile);
+    if (containingModule == null) return null;
 
-    final List<PantsTargetAddress> addresses = PantsUtil.getTargetAddressesFromModule(containingModule);
-    if (addresses.size() != 1) return Collections.emptyList();
+    final List<PantsTargetAddress> addresses = PantsModuleAddressIndex.getInstance(project).getTargetAddresses(containingModule);
+    if (addresses.size() != 1) return null;
 
-    final PantsTargetAddress currentAddress = addresses.iterator().next();
+    return new PantsUnresolvedReferenceFixFinder(containingFile, containingModule, addresses.iterator().next());
+  }
 
-    final PsiClass[] classes = PsiShortNamesCache.getInstance(project).getClassesByName(referenceName, GlobalSearchScope.allScope(project));
-    final List<PsiClass> allowedDependencies = filterAllowedDependencies(containingFile, classes);
-    final List<PantsQuickFix> result = new ArrayList<PantsQuickFix>();
-    for (PsiClass dependency : allowedDependencies) {
-      final Module module = ModuleUtil.findModuleForPsiElement(dependency);
-      for (PantsTargetAddress addressToAdd : PantsUtil.getTargetAddressesFromModule(module)) {
-        result.add(new AddPantsTargetDependencyFix(currentAddress, addressToAdd));
-      }
-      // todo(fkoroktov): handle jars
-    }
-    return result;
+  private final PsiFile myContainingFile;
+  private final Module myContainingModule;
+  private final PantsTargetAddress myCurrentAddress;
+  private final ProjectFileIndex myFileIndex;
+  private final PantsModuleAddressIndex myAddressIndex;
+  private final DependencyValidationManager myDependencyValidationManager;
+  private final boolean myCheckRules;
+  private final PsiManager myPsiManager;
+  private final GlobalSearchScope myScope;
+
+  private PantsUnresolvedReferenceFixFinder(
+    @NotNull PsiFile containingFile,
+    @NotNull Module containingModule,
+    @NotNull PantsTargetAddress currentAddress
+  ) {
+    final Project project = containingFile.getProject();
+    myContainingFile = containingFile;
+    myContainingModule = containingModule;
+    myCurrentAddress = currentAddress;
+    myFileIndex = ProjectRootManager.getInstance(project).getFileIndex();
+    myAddressIndex = PantsModuleAddressIndex.getInstance(project);
+    myDependencyValidationManager = DependencyValidationManager.getInstance(project);
+    myCheckRules = myDependencyValidationManager.hasRules();
+    myPsiManager = PsiManager.getInstance(project);
+    myScope = GlobalSearchScope.projectScope(project);
   }
 
-  private static List<PsiClass> filterAllowedDependencies(PsiFile fromFile, PsiClass[] classes) {
-    final DependencyValidationManager dependencyValidationManager = DependencyValidationManager.getInstance(fromFile.getProject());
-    final List<PsiClass> result = new ArrayList<PsiClass>();
-    for (PsiClass psiClass : classes) {
-      if (dependencyValidationManager.getViolatorDependencyRule(fromFile, psiClass.getContainingFile()) == null) {
-        result.add(psiClass);
+  @NotNull
+  public List<PantsQuickFix> findMissingDependencies(@NotNull String referenceName) {
+    // address string -> address
+    final Map<String, PantsTargetAddress> addressesToAdd = new LinkedHashMap<String, PantsTargetAddress>();
+    for (VirtualFile dependencyFile : PantsClassNameIndex.getFilesDeclaringClass(referenceName, myScope)) {
+      ProgressManager.checkCanceled();
+      final Module module = myFileIndex.getModuleForFile(dependencyFile);
+      if (module == null || module == myContainingModule) {
+        continue;
+      }
+      final List<PantsTargetAddress> moduleAddresses = myAddressIndex.getTargetAddresses(module);
+      if (moduleAddresses.isEmpty() || addressesToAdd.containsKey(moduleAddresses.iterator().next().toString())) {
+        continue;
       }
+      if (myCheckRules) {
+        final PsiFile dependencyPsiFile = myPsiManager.findFile(dependencyFile);
+        if (dependencyPsiFile == null ||
+            myDependencyValidationManager.getViolatorDependencyRule(myContainingFile, dependencyPsiFile) != null) {
+          continue;
+        }
+      }
+      for (PantsTargetAddress address : moduleAddresses) {
+        addressesToAdd.put(address.toString(), address);
+      }
+    }
+    final List<PantsQuickFix> result = new ArrayList<PantsQuickFix>(addressesToAdd.size());
+    for (PantsTargetAddress addressToAdd : addressesToAdd.values()) {
+      result.add(new AddPantsTargetDependencyFix(myCurrentAddress, addressToAdd));
     }
     return result;
   }
@@ -33,7 +33,7 @@ import java.io.File;
 import java.util.*;
 
 public class PantsResolver extends PantsResolverBase {
-  public static final int VERSION = 9;
+  public static final int VERSION = 11;
 
   public PantsResolver(@NotNull PantsCompileOptionsExecutor executor) {
     super(executor);
@@ -434,12 +434,33 @@ public class PantsResolver extends PantsResolverBase {
         }
       )
     );
+    metadata.setTargetGlobs(getAbsoluteTargetGlobs(targetInfo));
     metadata.setLibraryExcludes(targetInfo.getExcludes());
     moduleDataNode.createChild(TargetMetadata.KEY, metadata);
 
     return moduleDataNode;
   }
 
+  @NotNull
+  private Map<String, List<String>> getAbsoluteTargetGlobs(@NotNull TargetInfo targetInfo) {
+    final Map<String, List<String>> result = new HashMap<String, List<String>>();
+    for (TargetAddressInfo addressInfo : targetInfo.getAddressInfos()) {
+      result.put(
+        addressInfo.getTargetAddress(),
+        ContainerUtil.map(
+          addressInfo.getGlobs().getGlobs(),
+          new Function<String, String>() {
+            @Override
+            public String fun(String glob) {
+              return FileUtil.isAbsolute(glob) ? glob : myExecutor.getAbsolutePathFromWorkingDir(glob);
+            }
+          }
+        )
+      );
+    }
+    return result;
+  }
+
   private static List<SourceRoot> sortRootsAsPaths(
     @NotNull Collection<SourceRoot> sourceRoots,
     @NotNull final PantsSourceType rootType
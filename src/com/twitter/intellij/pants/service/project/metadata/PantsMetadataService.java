@@ -12,13 +12,17 @@ import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.text.StringUtil;
+import com.twitter.intellij.pants.execution.PantsRuntimeClasspath;
 import com.twitter.intellij.pants.service.project.PantsResolver;
 import com.twitter.intellij.pants.settings.PantsSettings;
 import com.twitter.intellij.pants.util.PantsConstants;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 public class PantsMetadataService implements ProjectDataService<TargetMetadata, Module> {
   @NotNull
@@ -45,6 +49,7 @@ public class PantsMetadataService implements ProjectDataService<TargetMetadata,
     // for existing projects. for new projects PantsSettings.defaultSettings will provide the version.
     PantsSettings.getInstance(project).setResolverVersion(PantsResolver.VERSION);
     final ModuleManager moduleManager = ModuleManager.getInstance(project);
+    final List<Module> importedModules = new ArrayList<Module>(toImport.size());
     for (DataNode<TargetMetadata> node : toImport) {
       final TargetMetadata metadata = node.getData();
       final Module module = moduleManager.findModuleByName(metadata.getModuleName());
@@ -52,8 +57,12 @@ public class PantsMetadataService implements ProjectDataService<TargetMetadata,
         module.setOption(PantsConstants.PANTS_COMPILER_OUTPUTS_KEY, StringUtil.join(metadata.getCompilerOutputs(), File.pathSeparator));
         module.setOption(PantsConstants.PANTS_LIBRARY_EXCLUDES_KEY, StringUtil.join(metadata.getLibraryExcludes(), ","));
         module.setOption(PantsConstants.PANTS_TARGET_ADDRESSES_KEY, StringUtil.join(metadata.getTargetAddresses(), ","));
+        PantsModuleTargetGlobs.getInstance(module).setTargetGlobs(metadata.getTargetGlobs());
+        importedModules.add(module);
       }
     }
+    PantsModuleAddressIndex.getInstance(project).update(importedModules);
+    PantsRuntimeClasspath.invalidate(project);
   }
 
   @Override
@@ -64,7 +73,10 @@ public class PantsMetadataService implements ProjectDataService<TargetMetadata,
         public void execute() {
           for (Module module : toRemove) {
             module.clearOption(PantsConstants.PANTS_TARGET_ADDRESSES_KEY);
+            PantsModuleTargetGlobs.getInstance(module).setTargetGlobs(Collections.<String, List<String>>emptyMap());
           }
+          PantsModuleAddressIndex.getInstance(project).remove(toRemove);
+          PantsRuntimeClasspath.invalidate(project);
         }
       }
     );
@@ -0,0 +1,162 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.metadata;
+
+import com.intellij.ProjectTopics;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.project.ModuleAdapter;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.containers.ContainerUtil;
+import com.twitter.intellij.pants.model.PantsTargetAddress;
+import com.twitter.intellij.pants.util.PantsUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Module to target addresses, target address to module and module to BUILD file mappings.
+ * Built on first use from module options and updated by {@link PantsMetadataService} for imported modules only.
+ */
+public class PantsModuleAddressIndex {
+  private final Project myProject;
+  /**
+   * Replaced as a whole so readers never take a lock.
+   */
+  private volatile Mappings myMappings = null;
+
+  @NotNull
+  public static PantsModuleAddressIndex getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, PantsModuleAddressIndex.class);
+  }
+
+  public PantsModuleAddressIndex(@NotNull Project project) {
+    myProject = project;
+    project.getMessageBus().connect(project).subscribe(
+      ProjectTopics.MODULES, new ModuleAdapter() {
+        @Override
+        public void moduleRemoved(@NotNull Project project, @NotNull Module module) {
+          remove(Collections.singletonList(module));
+        }
+      }
+    );
+  }
+
+  @NotNull
+  public List<PantsTargetAddress> getTargetAddresses(@Nullable Module module) {
+    final List<PantsTargetAddress> result = module != null ? getMappings().myModuleToAddresses.get(module) : null;
+    return result != null ? result : Collections.<PantsTargetAddress>emptyList();
+  }
+
+  @Nullable
+  public Module findModule(@NotNull PantsTargetAddress address) {
+    return getMappings().myAddressToModule.get(address.toString());
+  }
+
+  @Nullable
+  public VirtualFile findBUILDFile(@NotNull Module module) {
+    final VirtualFile buildFile = getMappings().myModuleToBUILDFile.get(module);
+    if (buildFile != null && !buildFile.isValid()) {
+      // the BUILD file was deleted or its directory was moved after the mappings were built
+      return module.isDisposed() ? null : PantsUtil.findBUILDFileForModule(module);
+    }
+    return buildFile;
+  }
+
+  /**
+   * Reads target addresses and BUILD files of {@code modules} from their options again.
+   */
+  public void update(@NotNull Collection<Module> modules) {
+    final Mappings mappings = myMappings;
+    if (mappings != null) {
+      myMappings = mappings.update(modules, Collections.<Module>emptyList());
+    }
+  }
+
+  public void remove(@NotNull Collection<? extends Module> modules) {
+    final Mappings mappings = myMappings;
+    if (mappings != null) {
+      myMappings = mappings.update(Collections.<Module>emptyList(), modules);
+    }
+  }
+
+  @NotNull
+  private Mappings getMappings() {
+    Mappings result = myMappings;
+    if (result == null) {
+      result = new Mappings().update(Arrays.asList(ModuleManager.getInstance(myProject).getModules()), Collections.<Module>emptyList());
+      myMappings = result;
+    }
+    return result;
+  }
+
+  /**
+   * Never modified after creation.
+   */
+  private static class Mappings {
+    private final Map<Module, List<PantsTargetAddress>> myModuleToAddresses;
+    private final Map<String, Module> myAddressToModule;
+    private final Map<Module, VirtualFile> myModuleToBUILDFile;
+
+    private Mappings() {
+      this(
+        Collections.<Module, List<PantsTargetAddress>>emptyMap(),
+        Collections.<String, Module>emptyMap(),
+        Collections.<Module, VirtualFile>emptyMap()
+      );
+    }
+
+    private Mappings(
+      @NotNull Map<Module, List<PantsTargetAddress>> moduleToAddresses,
+      @NotNull Map<String, Module> addressToModule,
+      @NotNull Map<Module, VirtualFile> moduleToBUILDFile
+    ) {
+      myModuleToAddresses = moduleToAddresses;
+      myAddressToModule = addressToModule;
+      myModuleToBUILDFile = moduleToBUILDFile;
+    }
+
+    /**
+     * Copies the mappings and changes entries of {@code updated} and {@code removed} modules only.
+     */
+    @NotNull
+    public Mappings update(@NotNull Collection<Module> updated, @NotNull Collection<? extends Module> removed) {
+      final Map<Module, List<PantsTargetAddress>> moduleToAddresses = new HashMap<Module, List<PantsTargetAddress>>(myModuleToAddresses);
+      final Map<String, Module> addressToModule = new HashMap<String, Module>(myAddressToModule);
+      final Map<Module, VirtualFile> moduleToBUILDFile = new HashMap<Module, VirtualFile>(myModuleToBUILDFile);
+
+      for (Module module : ContainerUtil.concat(updated, removed)) {
+        final List<PantsTargetAddress> oldAddresses = moduleToAddresses.remove(module);
+        if (oldAddresses != null) {
+          for (PantsTargetAddress address : oldAddresses) {
+            addressToModule.remove(address.toString());
+          }
+        }
+        moduleToBUILDFile.remove(module);
+      }
+
+      for (Module module : updated) {
+        final List<PantsTargetAddress> addresses = module.isDisposed() ?
+                                                   Collections.<PantsTargetAddress>emptyList() :
+                                                   PantsUtil.getTargetAddressesFromModule(module);
+        if (addresses.isEmpty()) {
+          // not a Pants module
+          continue;
+        }
+        moduleToAddresses.put(module, Collections.unmodifiableList(addresses));
+        for (PantsTargetAddress address : addresses) {
+          addressToModule.put(address.toString(), module);
+        }
+        final VirtualFile buildFile = PantsUtil.findBUILDFileForModule(module);
+        if (buildFile != null) {
+          moduleToBUILDFile.put(module, buildFile);
+        }
+      }
+      return new Mappings(moduleToAddresses, addressToModule, moduleToBUILDFile);
+    }
+  }
+}
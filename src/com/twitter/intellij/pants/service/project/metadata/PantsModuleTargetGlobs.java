@@ -0,0 +1,55 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.metadata;
+
+import com.intellij.openapi.components.*;
+import com.intellij.openapi.module.Module;
+import com.twitter.intellij.pants.util.PantsConstants;
+import com.twitter.intellij.pants.util.PantsUtil;
+import org.jdom.Element;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sources globs of targets of a module. Stored as child elements of a component in the module file
+ * where the JPS model serializer reads them.
+ */
+@State(name = PantsConstants.PANTS_TARGET_GLOBS_COMPONENT, storages = {@Storage(file = StoragePathMacros.MODULE_FILE)})
+public class PantsModuleTargetGlobs implements PersistentStateComponent<Element> {
+  private Map<String, List<String>> myTargetGlobs = Collections.emptyMap();
+
+  @NotNull
+  public static PantsModuleTargetGlobs getInstance(@NotNull Module module) {
+    return ModuleServiceManager.getService(module, PantsModuleTargetGlobs.class);
+  }
+
+  @NotNull
+  public Map<String, List<String>> getTargetGlobs() {
+    return myTargetGlobs;
+  }
+
+  public void setTargetGlobs(@NotNull Map<String, List<String>> targetGlobs) {
+    myTargetGlobs = Collections.unmodifiableMap(targetGlobs);
+  }
+
+  @Nullable
+  @Override
+  public Element getState() {
+    if (myTargetGlobs.isEmpty()) {
+      return null;
+    }
+    final Element element = new Element("state");
+    PantsUtil.writeTargetGlobs(myTargetGlobs, element);
+    return element;
+  }
+
+  @Override
+  public void loadState(Element state) {
+    myTargetGlobs = Collections.unmodifiableMap(PantsUtil.readTargetGlobs(state));
+  }
+}
@@ -9,10 +9,7 @@ import com.intellij.openapi.externalSystem.model.ProjectSystemId;
 import com.intellij.openapi.externalSystem.model.project.AbstractExternalEntityData;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 
 public class TargetMetadata extends AbstractExternalEntityData {
   private static final long serialVersionUID = 1L;
@@ -24,6 +21,7 @@ public class TargetMetadata extends AbstractExternalEntityData {
   private Set<String> myCompilerOutputs = Collections.emptySet();
   private Set<String> myLibraryExcludes = Collections.emptySet();
   private Set<String> myTargetAddresses = Collections.emptySet();
+  private Map<String, List<String>> myTargetGlobs = Collections.emptyMap();
 
   public TargetMetadata(ProjectSystemId systemId, @NotNull String moduleName) {
     super(systemId);
@@ -44,6 +42,18 @@ public class TargetMetadata extends AbstractExternalEntityData {
     myTargetAddresses = new HashSet<String>(targetAddresses);
   }
 
+  /**
+   * @return absolute sources globs for each target address
+   */
+  @NotNull
+  public Map<String, List<String>> getTargetGlobs() {
+    return myTargetGlobs;
+  }
+
+  public void setTargetGlobs(Map<String, List<String>> targetGlobs) {
+    myTargetGlobs = new HashMap<String, List<String>>(targetGlobs);
+  }
+
   @NotNull
   public Set<String> getLibraryExcludes() {
     return myLibraryExcludes;
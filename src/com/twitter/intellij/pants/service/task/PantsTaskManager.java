@@ -5,14 +5,11 @@ package com.twitter.intellij.pants.service.task;
 
 import com.intellij.execution.ExecutionException;
 import com.intellij.execution.configurations.GeneralCommandLine;
-import com.intellij.execution.process.ProcessAdapter;
-import com.intellij.execution.process.ProcessEvent;
-import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.execution.process.OSProcessHandler;
 import com.intellij.openapi.externalSystem.model.ExternalSystemException;
 import com.intellij.openapi.externalSystem.model.task.ExternalSystemTaskId;
 import com.intellij.openapi.externalSystem.model.task.ExternalSystemTaskNotificationListener;
 import com.intellij.openapi.externalSystem.task.AbstractExternalSystemTaskManager;
-import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.Pair;
 import com.intellij.util.containers.ContainerUtil;
 import com.twitter.intellij.pants.PantsBundle;
@@ -90,22 +87,11 @@ public class PantsTaskManager extends AbstractExternalSystemTaskManager<PantsExe
     try {
       final Process process = commandLine.createProcess();
       myCancellationMap.put(id, process);
-      PantsUtil.getOutput(
-        process,
-        new ProcessAdapter() {
-          @Override
-          public void startNotified(ProcessEvent event) {
-            super.startNotified(event);
-            listener.onStart(id);
-          }
-
-          @Override
-          public void onTextAvailable(ProcessEvent event, Key outputType) {
-            super.onTextAvailable(event, outputType);
-            listener.onTaskOutput(id, event.getText(), outputType == ProcessOutputTypes.STDOUT);
-          }
-        }
-      );
+      // streams the output without keeping all of it in memory as CapturingProcessHandler does
+      final OSProcessHandler processHandler = new OSProcessHandler(process, commandLine.getCommandLineString());
+      processHandler.addProcessListener(new PantsTaskOutputBatcher(id, listener));
+      processHandler.startNotify();
+      processHandler.waitFor();
     }
     catch (ExecutionException e) {
       throw new ExternalSystemException(e);
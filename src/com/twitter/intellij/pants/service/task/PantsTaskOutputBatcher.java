@@ -0,0 +1,86 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.task;
+
+import com.intellij.concurrency.JobScheduler;
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.openapi.externalSystem.model.task.ExternalSystemTaskId;
+import com.intellij.openapi.externalSystem.model.task.ExternalSystemTaskNotificationListener;
+import com.intellij.openapi.util.Key;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forwards process output to the listener in batches instead of a notification per chunk:
+ * output is flushed when {@link #MAX_BATCH_SIZE} characters are collected, when the other output type arrives
+ * or at least every {@link #FLUSH_INTERVAL} ms.
+ */
+public class PantsTaskOutputBatcher extends ProcessAdapter {
+  private static final int MAX_BATCH_SIZE = 8 * 1024;
+  private static final long FLUSH_INTERVAL = 200;
+
+  private final ExternalSystemTaskId myId;
+  private final ExternalSystemTaskNotificationListener myListener;
+  private ScheduledFuture<?> myFlushFuture = null;
+
+  private final StringBuilder myBatch = new StringBuilder();
+  private boolean myBatchIsStdOut = true;
+
+  public PantsTaskOutputBatcher(@NotNull ExternalSystemTaskId id, @NotNull ExternalSystemTaskNotificationListener listener) {
+    myId = id;
+    myListener = listener;
+  }
+
+  @Override
+  public void startNotified(ProcessEvent event) {
+    myListener.onStart(myId);
+    myFlushFuture = JobScheduler.getScheduler().scheduleWithFixedDelay(
+      new Runnable() {
+        @Override
+        public void run() {
+          flush();
+        }
+      },
+      FLUSH_INTERVAL,
+      FLUSH_INTERVAL,
+      TimeUnit.MILLISECONDS
+    );
+  }
+
+  @Override
+  public void onTextAvailable(ProcessEvent event, Key outputType) {
+    final boolean stdOut = outputType == ProcessOutputTypes.STDOUT;
+    synchronized (this) {
+      if (stdOut != myBatchIsStdOut) {
+        flush();
+        myBatchIsStdOut = stdOut;
+      }
+      myBatch.append(event.getText());
+      if (myBatch.length() >= MAX_BATCH_SIZE) {
+        flush();
+      }
+    }
+  }
+
+  @Override
+  public void processTerminated(ProcessEvent event) {
+    if (myFlushFuture != null) {
+      myFlushFuture.cancel(false);
+    }
+    flush();
+  }
+
+  private synchronized void flush() {
+    if (myBatch.length() == 0) {
+      return;
+    }
+    final String text = myBatch.toString();
+    myBatch.setLength(0);
+    myListener.onTaskOutput(myId, text, myBatchIsStdOut);
+  }
+}
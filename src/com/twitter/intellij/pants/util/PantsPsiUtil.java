@@ -3,8 +3,12 @@
 
 package com.twitter.intellij.pants.util;
 
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.Pair;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.jetbrains.python.psi.*;
 import org.jetbrains.annotations.NotNull;
@@ -15,12 +19,31 @@ import java.util.*;
 import static com.intellij.openapi.util.text.StringUtil.unquoteString;
 
 public class PantsPsiUtil {
+  private static final Key<CachedValue<Map<String, PyCallExpression>>> TARGETS_KEY = Key.create("pants.targets");
+  private static final Key<CachedValue<Map<String, PyReferenceExpression>>> TARGET_DEFINITIONS_KEY =
+    Key.create("pants.target.definitions");
 
+  /**
+   * The result is cached until {@code file} changes.
+   */
   @NotNull
-  public static Map<String, PyCallExpression> findTargets(@Nullable PsiFile file) {
+  public static Map<String, PyCallExpression> findTargets(@Nullable final PsiFile file) {
     if (file == null) {
       return Collections.emptyMap();
     }
+    return CachedValuesManager.getCachedValue(
+      file, TARGETS_KEY, new CachedValueProvider<Map<String, PyCallExpression>>() {
+        @Nullable
+        @Override
+        public Result<Map<String, PyCallExpression>> compute() {
+          return Result.create(Collections.unmodifiableMap(collectTargets(file)), file);
+        }
+      }
+    );
+  }
+
+  @NotNull
+  private static Map<String, PyCallExpression> collectTargets(@NotNull PsiFile file) {
     final Map<String, PyCallExpression> result = new HashMap<String, PyCallExpression>();
     for (PyExpressionStatement statement : PsiTreeUtil.findChildrenOfType(file, PyExpressionStatement.class)) {
       final Pair<String, PyCallExpression> nameExpressionPair = findTarget(statement);
@@ -44,8 +67,24 @@ public class PantsPsiUtil {
     return null;
   }
 
+  /**
+   * The result is cached until {@code pyFile} changes.
+   */
+  @NotNull
+  public static Map<String, PyReferenceExpression> findTargetDefinitions(@NotNull final PyFile pyFile) {
+    return CachedValuesManager.getCachedValue(
+      pyFile, TARGET_DEFINITIONS_KEY, new CachedValueProvider<Map<String, PyReferenceExpression>>() {
+        @Nullable
+        @Override
+        public Result<Map<String, PyReferenceExpression>> compute() {
+          return Result.create(Collections.unmodifiableMap(collectTargetDefinitions(pyFile)), pyFile);
+        }
+      }
+    );
+  }
+
   @NotNull
-  public static Map<String, PyReferenceExpression> findTargetDefinitions(@NotNull PyFile pyFile) {
+  private static Map<String, PyReferenceExpression> collectTargetDefinitions(@NotNull PyFile pyFile) {
     final PyFunction buildFileAliases = pyFile.findTopLevelFunction("build_file_aliases");
     final PyStatement[] statements =
       buildFileAliases != null ? buildFileAliases.getStatementList().getStatements() : PyStatement.EMPTY_ARRAY;
@@ -0,0 +1,6 @@
+jar_library(
+    name='foo/bar<caret>',
+    dependencies=[
+        'foo/bar:baz'
+    ]
+)
@@ -0,0 +1,6 @@
+jar_library(
+    name='bin',
+    dependencies=[
+        'foo/b<caret>'
+    ]
+)
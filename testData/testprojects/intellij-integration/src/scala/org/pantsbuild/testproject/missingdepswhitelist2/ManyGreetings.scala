@@ -0,0 +1,39 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package org.pantsbuild.testproject.missingdepswhitelist2
+
+import org.pantsbuild.testproject.publish.hello.greet.Greeting
+
+class ManyGreetings {
+  def greet01() = Greeting.greet("greet01")
+  def greet02() = Greeting.greet("greet02")
+  def greet03() = Greeting.greet("greet03")
+  def greet04() = Greeting.greet("greet04")
+  def greet05() = Greeting.greet("greet05")
+  def greet06() = Greeting.greet("greet06")
+  def greet07() = Greeting.greet("greet07")
+  def greet08() = Greeting.greet("greet08")
+  def greet09() = Greeting.greet("greet09")
+  def greet10() = Greeting.greet("greet10")
+  def greet11() = Greeting.greet("greet11")
+  def greet12() = Greeting.greet("greet12")
+  def greet13() = Greeting.greet("greet13")
+  def greet14() = Greeting.greet("greet14")
+  def greet15() = Greeting.greet("greet15")
+  def greet16() = Greeting.greet("greet16")
+  def greet17() = Greeting.greet("greet17")
+  def greet18() = Greeting.greet("greet18")
+  def greet19() = Greeting.greet("greet19")
+  def greet20() = Greeting.greet("greet20")
+  def greet21() = Greeting.greet("greet21")
+  def greet22() = Greeting.greet("greet22")
+  def greet23() = Greeting.greet("greet23")
+  def greet24() = Greeting.greet("greet24")
+  def greet25() = Greeting.greet("greet25")
+  def greet26() = Greeting.greet("greet26")
+  def greet27() = Greeting.greet("greet27")
+  def greet28() = Greeting.greet("greet28")
+  def greet29() = Greeting.greet("greet29")
+  def greet30() = Greeting.greet("greet30")
+}
@@ -0,0 +1,68 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.testFramework.performance
+
+import java.io.File
+import java.lang.management.ManagementFactory
+
+import com.intellij.openapi.util.io.FileUtil
+import com.twitter.intellij.pants.util.{PantsCompilerOutputParser, PantsOutputMessage}
+import scala.collection.JavaConversions._
+
+/**
+ * Feeds recorded zinc and javac logs through compiler output parsers and reports time and allocations per line.
+ *
+ * Usage: PantsCompilerOutputBenchmark [-iterations N] log1 log2 ...
+ * By default uses logs from testData/testprojects/intellij-integration.
+ */
+object PantsCompilerOutputBenchmark {
+  val defaultLogs = List(
+    "testData/testprojects/intellij-integration/src/java/org/pantsbuild/testproject/failures/simple/simpleCompilationOutput.txt",
+    "testData/testprojects/intellij-integration/src/scala/org/pantsbuild/testproject/failures/simple/simpleCompilationOutput.txt"
+  )
+
+  def main(args: Array[String]) {
+    val (iterations, logs) = args.toList match {
+      case "-iterations" :: value :: tail => (value.toInt, tail)
+      case tail => (10000, tail)
+    }
+    val lines = (if (logs.isEmpty) defaultLogs else logs).flatMap(path => FileUtil.loadLines(new File(path)))
+    println(s"Parsing ${lines.size} lines $iterations times")
+
+    run("PantsOutputMessage", lines, iterations) { line =>
+      PantsOutputMessage.parseCompilerMessage(line)
+    }
+    val parser = new PantsCompilerOutputParser
+    run("PantsCompilerOutputParser", lines, iterations) { line =>
+      parser.parseCompilerMessage(line)
+    }
+    System.exit(0)
+  }
+
+  def run(name: String, lines: List[String], iterations: Int)(parse: String => PantsOutputMessage) {
+    // warm up
+    measure(lines, iterations / 10)(parse)
+    val (nanos, bytes) = measure(lines, iterations)(parse)
+    val total = lines.size.toLong * iterations
+    println(f"$name%-30s ${nanos.toDouble / total}%8.1f ns/line ${bytes.toDouble / total}%8.1f bytes/line")
+  }
+
+  def measure(lines: List[String], iterations: Int)(parse: String => PantsOutputMessage): (Long, Long) = {
+    val threadBean = ManagementFactory.getThreadMXBean.asInstanceOf[com.sun.management.ThreadMXBean]
+    val threadId = Thread.currentThread.getId
+    val linesArray = lines.toArray
+    var found = 0
+    val bytesBefore = threadBean.getThreadAllocatedBytes(threadId)
+    val start = System.nanoTime
+    for (i <- 0 until iterations; line <- linesArray) {
+      if (parse(line) != null) {
+        found += 1
+      }
+    }
+    val nanos = System.nanoTime - start
+    val bytes = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore
+    if (found < 0) println(found) // keeps the loop alive
+    (nanos, bytes)
+  }
+}
@@ -95,4 +95,27 @@ public class PantsCompletionTest extends PantsCompletionTestBase {
     configure("foo");
     doCompletionTest('\n');
   }
+
+  public void testAddresses() throws Throwable {
+    myFixture.addFileToProject("foo/bar/BUILD", "jar_library(name='baz')\njava_library(name='qux')");
+    myFixture.addFileToProject("foo/baz/BUILD", "jar_library(name='bar')");
+    configure("bin");
+    doTestVariants();
+  }
+
+  public void testAddressesOutsideDependencies() throws Throwable {
+    myFixture.addFileToProject("foo/bar/BUILD", "jar_library(name='baz')\njava_library(name='qux')");
+    configure("bin");
+    doTestVariants();
+  }
+
+  public void testAddressesRanking() throws Throwable {
+    // more nested directories than shown, listed before the closest one
+    for (int i = 0; i < 60; i++) {
+      myFixture.addFileToProject(String.format("foo/bar/a%02d/BUILD", i), "jar_library(name='baz')");
+    }
+    myFixture.addFileToProject("foo/bar/BUILD", "java_library(name='qux')");
+    configure("bin");
+    doTestVariants();
+  }
 }
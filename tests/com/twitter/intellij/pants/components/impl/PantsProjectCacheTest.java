@@ -92,4 +92,43 @@ public class PantsProjectCacheTest extends PantsCodeInsightFixtureTestCase {
       writeAccessToken.finish();
     }
   }
-}
\ No newline at end of file
+
+  public void testRemovedRoot() throws IOException {
+    final PantsProjectCache cache = PantsProjectCacheImpl.getInstance(myFixture.getProject());
+    final VirtualFile root = getMainContentRoot();
+
+    final AccessToken writeAccessToken = ApplicationManager.getApplication().acquireWriteActionLock(getClass());
+    try {
+      final VirtualFile bar = VfsUtil.createDirectoryIfMissing(root, "foo/bar");
+      PsiTestUtil.addSourceRoot(myModule, bar);
+      PsiTestUtil.addSourceRoot(myModule, VfsUtil.createDirectoryIfMissing(root, "baz"));
+      assertTrue(cache.folderContainsSourceRoot(VfsUtil.createDirectoryIfMissing(root, "foo")));
+      PsiTestUtil.removeSourceRoot(myModule, bar);
+      assertFalse(cache.folderContainsSourceRoot(VfsUtil.createDirectoryIfMissing(root, "foo")));
+      assertTrue(cache.folderContainsSourceRoot(VfsUtil.createDirectoryIfMissing(root, "baz")));
+    }
+    finally {
+      writeAccessToken.finish();
+    }
+  }
+
+  public void testRemovedOneOfNestedRoots() throws IOException {
+    final PantsProjectCache cache = PantsProjectCacheImpl.getInstance(myFixture.getProject());
+    final VirtualFile root = getMainContentRoot();
+
+    final AccessToken writeAccessToken = ApplicationManager.getApplication().acquireWriteActionLock(getClass());
+    try {
+      final VirtualFile bar = VfsUtil.createDirectoryIfMissing(root, "foo/bar");
+      PsiTestUtil.addSourceRoot(myModule, bar);
+      PsiTestUtil.addSourceRoot(myModule, VfsUtil.createDirectoryIfMissing(root, "foo/baz"));
+      assertTrue(cache.folderContainsSourceRoot(VfsUtil.createDirectoryIfMissing(root, "foo")));
+      PsiTestUtil.removeSourceRoot(myModule, bar);
+      assertTrue(cache.folderContainsSourceRoot(VfsUtil.createDirectoryIfMissing(root, "foo")));
+      assertTrue(cache.folderContainsSourceRoot(root));
+      assertFalse(cache.folderContainsSourceRoot(bar));
+    }
+    finally {
+      writeAccessToken.finish();
+    }
+  }
+}
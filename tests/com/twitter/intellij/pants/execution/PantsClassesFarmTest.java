@@ -0,0 +1,78 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.execution;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.UsefulTestCase;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class PantsClassesFarmTest extends UsefulTestCase {
+  public void testUpdate() throws Exception {
+    final File first = FileUtil.createTempDirectory("first", null);
+    final File second = FileUtil.createTempDirectory("second", null);
+    FileUtil.writeToFile(new File(first, "foo/Foo.class"), "first foo");
+    FileUtil.writeToFile(new File(second, "foo/Foo.class"), "second foo");
+    FileUtil.writeToFile(new File(second, "bar/Bar.class"), "bar");
+    final List<String> outputs = Arrays.asList(first.getPath(), second.getPath());
+
+    final File farm = PantsClassesFarm.update(outputs);
+    assertEquals("first foo", FileUtil.loadFile(new File(farm, "foo/Foo.class")));
+    assertEquals("bar", FileUtil.loadFile(new File(farm, "bar/Bar.class")));
+
+    // compilers replace class files
+    assertTrue(FileUtil.delete(new File(second, "bar/Bar.class")));
+    FileUtil.writeToFile(new File(second, "bar/Baz.class"), "baz");
+    PantsClassesFarm.outputsChanged(Collections.singletonList(second.getPath()));
+    assertEquals(farm, PantsClassesFarm.update(outputs));
+    assertFalse(new File(farm, "bar/Bar.class").exists());
+    assertEquals("baz", FileUtil.loadFile(new File(farm, "bar/Baz.class")));
+    assertEquals("first foo", FileUtil.loadFile(new File(farm, "foo/Foo.class")));
+  }
+
+  public void testUnreportedOutputs() throws Exception {
+    final File first = FileUtil.createTempDirectory("first", null);
+    final File second = FileUtil.createTempDirectory("second", null);
+    FileUtil.writeToFile(new File(first, "foo/Foo.class"), "foo");
+    FileUtil.writeToFile(new File(second, "bar/Bar.class"), "bar");
+    final List<String> outputs = Arrays.asList(first.getPath(), second.getPath());
+    final File farm = PantsClassesFarm.update(outputs);
+
+    // e.g. Pants run from a terminal, the build reports only the second output
+    assertTrue(FileUtil.delete(new File(first, "foo/Foo.class")));
+    FileUtil.writeToFile(new File(first, "foo/Foo.class"), "new foo");
+    FileUtil.writeToFile(new File(first, "foo/Qux.class"), "qux");
+    FileUtil.writeToFile(new File(second, "bar/Baz.class"), "baz");
+    PantsClassesFarm.outputsChanged(Collections.singletonList(second.getPath()));
+    PantsClassesFarm.update(outputs);
+    assertEquals("new foo", FileUtil.loadFile(new File(farm, "foo/Foo.class")));
+    assertEquals("qux", FileUtil.loadFile(new File(farm, "foo/Qux.class")));
+    assertEquals("baz", FileUtil.loadFile(new File(farm, "bar/Baz.class")));
+
+    // nothing reported at all
+    assertTrue(FileUtil.delete(new File(first, "foo/Qux.class")));
+    PantsClassesFarm.update(outputs);
+    assertFalse(new File(farm, "foo/Qux.class").exists());
+  }
+
+  public void testReplacedFileWithSameSizeAndTimestamp() throws Exception {
+    final File output = FileUtil.createTempDirectory("output", null);
+    final File fooClass = new File(output, "foo/Foo.class");
+    FileUtil.writeToFile(fooClass, "foo1");
+    final long timestamp = fooClass.lastModified();
+    final List<String> outputs = Collections.singletonList(output.getPath());
+    final File farm = PantsClassesFarm.update(outputs);
+
+    // a new file within the timestamp granularity of the file system
+    assertTrue(FileUtil.delete(fooClass));
+    FileUtil.writeToFile(fooClass, "foo2");
+    assertTrue(fooClass.setLastModified(timestamp));
+    PantsClassesFarm.outputsChanged(outputs);
+    PantsClassesFarm.update(outputs);
+    assertEquals("foo2", FileUtil.loadFile(new File(farm, "foo/Foo.class")));
+  }
+}
@@ -0,0 +1,74 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.execution;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.UsefulTestCase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+
+public class PantsClasspathJarTest extends UsefulTestCase {
+  public void testNeeded() {
+    final List<String> classpath = createLongClasspath();
+    final String threshold = System.getProperty(PantsClasspathJar.THRESHOLD_PROPERTY);
+    System.setProperty(PantsClasspathJar.THRESHOLD_PROPERTY, "30000");
+    try {
+      assertFalse(PantsClasspathJar.isNeeded(Arrays.asList("/foo/bar.jar", "/foo/baz")));
+      assertTrue(PantsClasspathJar.isNeeded(classpath));
+    }
+    finally {
+      restoreThreshold(threshold);
+    }
+  }
+
+  public void testDisabledByDefault() {
+    final String threshold = System.getProperty(PantsClasspathJar.THRESHOLD_PROPERTY);
+    System.clearProperty(PantsClasspathJar.THRESHOLD_PROPERTY);
+    try {
+      assertFalse(PantsClasspathJar.isNeeded(createLongClasspath()));
+    }
+    finally {
+      restoreThreshold(threshold);
+    }
+  }
+
+  private static List<String> createLongClasspath() {
+    final List<String> classpath = new ArrayList<String>();
+    for (int i = 0; i < 1000; i++) {
+      classpath.add("/home/.pants.d/compile/jvm/java/isolated-classes/target" + i);
+    }
+    return classpath;
+  }
+
+  private static void restoreThreshold(String threshold) {
+    if (threshold != null) {
+      System.setProperty(PantsClasspathJar.THRESHOLD_PROPERTY, threshold);
+    }
+    else {
+      System.clearProperty(PantsClasspathJar.THRESHOLD_PROPERTY);
+    }
+  }
+
+  public void testReused() throws Exception {
+    final File dir = FileUtil.createTempDirectory("classes", null);
+    final List<String> classpath = Arrays.asList(dir.getPath(), "/foo/bar.jar");
+    final File jar = PantsClasspathJar.getOrCreate(classpath);
+    assertEquals(jar, PantsClasspathJar.getOrCreate(classpath));
+    assertFalse(jar.equals(PantsClasspathJar.getOrCreate(Arrays.asList("/foo/bar.jar"))));
+
+    final JarFile jarFile = new JarFile(jar);
+    try {
+      final String classPathAttribute = jarFile.getManifest().getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+      assertEquals(dir.toURI().toString() + " " + new File("/foo/bar.jar").toURI().toString(), classPathAttribute);
+    }
+    finally {
+      jarFile.close();
+    }
+  }
+}
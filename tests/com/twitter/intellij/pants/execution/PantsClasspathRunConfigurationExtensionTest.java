@@ -0,0 +1,41 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.execution;
+
+import com.intellij.testFramework.UsefulTestCase;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class PantsClasspathRunConfigurationExtensionTest extends UsefulTestCase {
+  public void testExcludedJars() {
+    final Map<String, String> excludes = new HashMap<String, String>();
+    excludes.put("com.foo:bar", "foo:tests");
+    excludes.put("org.baz", "baz:tests");
+
+    final Map<String, String> excluded = PantsClasspathRunConfigurationExtension.findAllExcludedJars(
+      Arrays.asList(
+        "/home/.ivy2/cache/com.foo/bar/jars/bar-1.0.jar",
+        "/home/.ivy2/cache/com.foo/bar-extra/jars/bar-extra-1.0.jar",
+        "/home/.ivy2/cache/org.baz/qux/jars/qux-2.0.jar",
+        "/home/.ivy2/cache/org.qux/bar/jars/org.baz",
+        "com.foo/bar/relative.jar"
+      ),
+      excludes
+    );
+    assertEquals(2, excluded.size());
+    assertEquals("foo:tests", excluded.get("/home/.ivy2/cache/com.foo/bar/jars/bar-1.0.jar"));
+    assertEquals("baz:tests", excluded.get("/home/.ivy2/cache/org.baz/qux/jars/qux-2.0.jar"));
+  }
+
+  public void testNoExcludes() {
+    assertEmpty(
+      PantsClasspathRunConfigurationExtension.findAllExcludedJars(
+        Arrays.asList("/home/.ivy2/cache/com.foo/bar/jars/bar-1.0.jar"),
+        new HashMap<String, String>()
+      ).keySet()
+    );
+  }
+}
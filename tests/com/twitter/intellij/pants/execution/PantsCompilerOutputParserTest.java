@@ -0,0 +1,57 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.execution;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.UsefulTestCase;
+import com.twitter.intellij.pants.util.PantsCompilerOutputParser;
+import com.twitter.intellij.pants.util.PantsOutputMessage;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+
+public class PantsCompilerOutputParserTest extends UsefulTestCase {
+  public void testLevels() {
+    assertEquals(PantsOutputMessage.Level.ERROR, PantsCompilerOutputParser.findLevel("[error] /foo/Bar.scala:1: oops"));
+    assertEquals(PantsOutputMessage.Level.ERROR, PantsCompilerOutputParser.findLevel("/foo/Bar.java:1: error: oops"));
+    assertEquals(PantsOutputMessage.Level.WARNING, PantsCompilerOutputParser.findLevel("[warn] /foo/Bar.scala:1: hmm"));
+    assertEquals(PantsOutputMessage.Level.WARNING, PantsCompilerOutputParser.findLevel("/foo/Bar.java:1: warning: hmm"));
+    assertEquals(PantsOutputMessage.Level.INFO, PantsCompilerOutputParser.findLevel("[debug] /foo/Bar.scala"));
+    assertEquals(PantsOutputMessage.Level.ERROR, PantsCompilerOutputParser.findLevel("[warn] [error] both"));
+    assertNull(PantsCompilerOutputParser.findLevel("Compiling 1 java source in 1 target"));
+    assertNull(PantsCompilerOutputParser.findLevel("[errors]"));
+    assertNull(PantsCompilerOutputParser.findLevel("[error"));
+  }
+
+  public void testSameLevelsAsPantsOutputMessage() throws IOException {
+    doTestSameLevels("testData/testprojects/intellij-integration/src/java/org/pantsbuild/testproject/failures/simple/simpleCompilationOutput.txt");
+    doTestSameLevels("testData/testprojects/intellij-integration/src/scala/org/pantsbuild/testproject/failures/simple/simpleCompilationOutput.txt");
+  }
+
+  private static void doTestSameLevels(@NotNull String pathToCompilationOutput) throws IOException {
+    for (String line : FileUtil.loadLines(new File(pathToCompilationOutput))) {
+      final PantsOutputMessage.Level expected = PantsOutputMessage.isError(line) ? PantsOutputMessage.Level.ERROR :
+                                                PantsOutputMessage.isWarning(line) ? PantsOutputMessage.Level.WARNING :
+                                                line.contains("[debug]") ? PantsOutputMessage.Level.INFO : null;
+      assertEquals(line, expected, PantsCompilerOutputParser.findLevel(line));
+    }
+  }
+
+  public void testExistingFile() throws IOException {
+    final File file = FileUtil.createTempFile("Foo", ".java");
+    final String path = file.getAbsolutePath();
+    doTest("     [error] " + path + ":23: oops", new PantsOutputMessage(13, 13 + path.length() + 3, path, 22, PantsOutputMessage.Level.ERROR));
+    doTest(path + ": warning: hmm", new PantsOutputMessage(0, path.length(), path, 0, PantsOutputMessage.Level.WARNING));
+    doTest("[error] /this/does/not/exist.java:23: oops", null);
+    doTest("Compiling " + path, null);
+  }
+
+  private static void doTest(@NotNull String line, @Nullable PantsOutputMessage expected) {
+    final PantsOutputMessage actual = new PantsCompilerOutputParser().parseCompilerMessage(line);
+    assertEquals(expected, actual);
+    assertEquals(expected, PantsOutputMessage.parseCompilerMessage(line));
+  }
+}
@@ -0,0 +1,103 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.execution;
+
+import com.intellij.execution.Location;
+import com.intellij.execution.PsiLocation;
+import com.intellij.execution.actions.ConfigurationContext;
+import com.intellij.execution.actions.ConfigurationFromContext;
+import com.intellij.execution.actions.RunConfigurationProducer;
+import com.intellij.execution.junit.JUnitConfiguration;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.actionSystem.LangDataKeys;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.testFramework.MapDataContext;
+import com.twitter.intellij.pants.testFramework.PantsCodeInsightFixtureTestCase;
+import com.twitter.intellij.pants.util.PantsConstants;
+import org.jetbrains.annotations.NotNull;
+
+public class PantsJUnitRunConfigurationProducerTest extends PantsCodeInsightFixtureTestCase {
+  private PsiClass myTestClass;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    setUpPantsExecutable();
+    myFixture.addClass("package org.junit; public @interface Test {}");
+    myTestClass = myFixture.addClass(
+      "package foo;\n" +
+      "public class FooTest {\n" +
+      "  @org.junit.Test\n" +
+      "  public void testFoo() {}\n" +
+      "}"
+    );
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    System.clearProperty(PantsJUnitRunConfigurationProducer.ENABLED_PROPERTY);
+    super.tearDown();
+  }
+
+  public void testDisabledByDefault() {
+    assertNull(createConfiguration(new PantsJUnitRunConfigurationProducer(), myTestClass));
+    assertNull(createConfiguration(new PantsJUnitMethodConfigurationProducer(), myTestClass.getMethods()[0]));
+  }
+
+  public void testClassConfiguration() {
+    System.setProperty(PantsJUnitRunConfigurationProducer.ENABLED_PROPERTY, "true");
+    final PantsJUnitRunConfigurationProducer producer = new PantsJUnitRunConfigurationProducer();
+    final JUnitConfiguration configuration = createConfiguration(producer, myTestClass);
+    assertNotNull(configuration);
+    assertEquals("foo.FooTest", configuration.getPersistentData().getMainClassName());
+    assertWorkingDir(configuration);
+    assertTrue(producer.isConfigurationFromContext(configuration, createContext(myTestClass)));
+  }
+
+  public void testMethodConfiguration() {
+    System.setProperty(PantsJUnitRunConfigurationProducer.ENABLED_PROPERTY, "true");
+    final PantsJUnitMethodConfigurationProducer producer = new PantsJUnitMethodConfigurationProducer();
+    final PsiElement method = myTestClass.getMethods()[0];
+    final JUnitConfiguration configuration = createConfiguration(producer, method);
+    assertNotNull(configuration);
+    assertEquals("testFoo", configuration.getPersistentData().getMethodName());
+    assertWorkingDir(configuration);
+    assertTrue(producer.isConfigurationFromContext(configuration, createContext(method)));
+  }
+
+  public void testOtherWorkingDir() {
+    System.setProperty(PantsJUnitRunConfigurationProducer.ENABLED_PROPERTY, "true");
+    final PantsJUnitRunConfigurationProducer producer = new PantsJUnitRunConfigurationProducer();
+    final JUnitConfiguration configuration = createConfiguration(producer, myTestClass);
+    assertNotNull(configuration);
+    // e.g. an existing JUnit configuration, it's left to the stock producer
+    configuration.setWorkingDirectory("/somewhere/else");
+    assertFalse(producer.isConfigurationFromContext(configuration, createContext(myTestClass)));
+  }
+
+  private void assertWorkingDir(@NotNull JUnitConfiguration configuration) {
+    final VirtualFile pantsExecutable = myFixture.findFileInTempDir(PantsConstants.PANTS);
+    assertNotNull(pantsExecutable);
+    assertEquals(pantsExecutable.getParent().getPath(), configuration.getWorkingDirectory());
+  }
+
+  private JUnitConfiguration createConfiguration(
+    @NotNull RunConfigurationProducer<JUnitConfiguration> producer,
+    @NotNull PsiElement element
+  ) {
+    final ConfigurationFromContext fromContext = producer.createConfigurationFromContext(createContext(element));
+    return fromContext != null ? (JUnitConfiguration)fromContext.getConfiguration() : null;
+  }
+
+  @NotNull
+  private ConfigurationContext createContext(@NotNull PsiElement element) {
+    final MapDataContext dataContext = new MapDataContext();
+    dataContext.put(CommonDataKeys.PROJECT, getProject());
+    dataContext.put(LangDataKeys.MODULE, myModule);
+    dataContext.put(Location.DATA_KEY, PsiLocation.fromPsiElement(element));
+    return ConfigurationContext.getFromContext(dataContext);
+  }
+}
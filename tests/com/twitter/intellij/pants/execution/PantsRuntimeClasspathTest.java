@@ -0,0 +1,60 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.execution;
+
+import com.intellij.openapi.externalSystem.model.DataNode;
+import com.twitter.intellij.pants.service.project.metadata.PantsMetadataService;
+import com.twitter.intellij.pants.service.project.metadata.PantsModuleAddressIndex;
+import com.twitter.intellij.pants.service.project.metadata.TargetMetadata;
+import com.twitter.intellij.pants.testFramework.PantsCodeInsightFixtureTestCase;
+import com.twitter.intellij.pants.util.PantsConstants;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class PantsRuntimeClasspathTest extends PantsCodeInsightFixtureTestCase {
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      myModule.clearOption(PantsConstants.PANTS_COMPILER_OUTPUTS_KEY);
+      myModule.clearOption(PantsConstants.PANTS_LIBRARY_EXCLUDES_KEY);
+      myModule.clearOption(PantsConstants.PANTS_TARGET_ADDRESSES_KEY);
+      // the light project is shared between tests
+      PantsModuleAddressIndex.getInstance(getProject()).update(Collections.singletonList(myModule));
+      PantsRuntimeClasspath.invalidate(getProject());
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testCachedUntilImport() {
+    importMetadata("/out/foo", "com.foo:bar");
+    final PantsRuntimeClasspath classpath = PantsRuntimeClasspath.getInstance(myModule);
+    assertEquals(Collections.singletonList("/out/foo"), classpath.getCompilerOutputs());
+    assertSame(classpath, PantsRuntimeClasspath.getInstance(myModule));
+
+    importMetadata("/out/bar", "com.foo:baz");
+    final PantsRuntimeClasspath importedClasspath = PantsRuntimeClasspath.getInstance(myModule);
+    assertNotSame(classpath, importedClasspath);
+    assertEquals(Collections.singletonList("/out/bar"), importedClasspath.getCompilerOutputs());
+    assertEquals(
+      Collections.singleton("/home/.ivy2/cache/com.foo/baz/jars/baz-1.0.jar"),
+      importedClasspath.findExcludedJars(
+        Arrays.asList("/home/.ivy2/cache/com.foo/bar/jars/bar-1.0.jar", "/home/.ivy2/cache/com.foo/baz/jars/baz-1.0.jar")
+      ).keySet()
+    );
+  }
+
+  private void importMetadata(String compilerOutput, String libraryExclude) {
+    final TargetMetadata metadata = new TargetMetadata(PantsConstants.SYSTEM_ID, myModule.getName());
+    metadata.setCompilerOutputs(Collections.singleton(compilerOutput));
+    metadata.setLibraryExcludes(Collections.singleton(libraryExclude));
+    metadata.setTargetAddresses(Collections.singletonList("src/java/foo:foo"));
+    new PantsMetadataService().doImport(
+      Collections.singletonList(new DataNode<TargetMetadata>(TargetMetadata.KEY, metadata, null)),
+      getProject()
+    );
+  }
+}
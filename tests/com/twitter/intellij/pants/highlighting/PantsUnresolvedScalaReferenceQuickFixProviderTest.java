@@ -8,6 +8,8 @@ import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.compiler.CompilerMessage;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.util.Condition;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.PsiClass;
 import com.intellij.util.ArrayUtil;
 import com.intellij.util.Function;
@@ -55,6 +57,28 @@ public class PantsUnresolvedScalaReferenceQuickFixProviderTest extends PantsHigh
     }
   }
 
+  public void testMissingDepsInFileWithManyInfos() throws Throwable {
+    doImport("intellij-integration/src/scala/org/pantsbuild/testproject/missingdepswhitelist");
+
+    final PsiClass psiClass = findClassAndAssert("org.pantsbuild.testproject.missingdepswhitelist2.ManyGreetings");
+    final Editor editor = createEditor(psiClass.getContainingFile().getVirtualFile());
+    assertNotNull(editor);
+    final List<HighlightInfo> infos = ContainerUtil.filter(
+      doHighlighting(psiClass.getContainingFile(), editor),
+      new Condition<HighlightInfo>() {
+        @Override
+        public boolean value(HighlightInfo info) {
+          return StringUtil.equals(info.getDescription(), "Cannot resolve symbol Greeting");
+        }
+      }
+    );
+    // the holder is flushed several times while such a file is highlighted
+    assertTrue(infos.size() >= 30);
+    for (HighlightInfo info : infos) {
+      assertNotNull(findIntention(info, AddPantsTargetDependencyFix.class));
+    }
+  }
+
   private void testIntentionIfCompilingWithIntelliJ(
     @NotNull final AddPantsTargetDependencyFix intention,
     @NotNull final Editor editor,
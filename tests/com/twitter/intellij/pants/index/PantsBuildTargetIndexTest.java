@@ -0,0 +1,77 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.index;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.jetbrains.python.psi.PyCallExpression;
+import com.twitter.intellij.pants.testFramework.PantsCodeInsightFixtureTestCase;
+
+import java.util.Map;
+
+public class PantsBuildTargetIndexTest extends PantsCodeInsightFixtureTestCase {
+  private static final String BUILD_TEXT =
+    "java_library(name='foo',\n" +
+    "  sources=globs('*.java'),\n" +
+    ")\n" +
+    "\n" +
+    "scala_library(\n" +
+    "  name = \"bar\",\n" +
+    "  dependencies = [':foo'],\n" +
+    ")\n";
+
+  public void testTargets() {
+    final PsiFile buildFile = myFixture.addFileToProject("src/foo/BUILD", BUILD_TEXT);
+    final Map<String, PantsBuildTargetIndex.TargetDefinition> targets = PantsBuildTargetIndex.getTargets(buildFile);
+    assertSameElements(targets.keySet(), "foo", "bar");
+    assertEquals("java_library", targets.get("foo").getType());
+    assertEquals(0, targets.get("foo").getOffset());
+    assertEquals("scala_library", targets.get("bar").getType());
+    assertEquals(BUILD_TEXT.indexOf("scala_library"), targets.get("bar").getOffset());
+  }
+
+  public void testFindTarget() {
+    final PsiFile buildFile = myFixture.addFileToProject("src/foo/BUILD", BUILD_TEXT);
+    assertTarget("java_library", PantsBuildTargetIndex.findTarget(buildFile, "foo"));
+    assertTarget("scala_library", PantsBuildTargetIndex.findTarget(buildFile, "bar"));
+    assertNull(PantsBuildTargetIndex.findTarget(buildFile, "baz"));
+    assertNull(PantsBuildTargetIndex.findTarget(null, "foo"));
+  }
+
+  public void testFindTargetAfterEdit() {
+    final PsiFile buildFile = myFixture.addFileToProject("src/foo/BUILD", BUILD_TEXT);
+    assertTarget("scala_library", PantsBuildTargetIndex.findTarget(buildFile, "bar"));
+
+    // shift offsets of existing targets and add a new one
+    final Document document = PsiDocumentManager.getInstance(getProject()).getDocument(buildFile);
+    assertNotNull(document);
+    new WriteCommandAction.Simple(getProject()) {
+      @Override
+      protected void run() throws Throwable {
+        document.insertString(0, "jar_library(name='baz')\n\n");
+        PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+      }
+    }.execute();
+
+    assertTarget("java_library", PantsBuildTargetIndex.findTarget(buildFile, "foo"));
+    assertTarget("scala_library", PantsBuildTargetIndex.findTarget(buildFile, "bar"));
+    assertTarget("jar_library", PantsBuildTargetIndex.findTarget(buildFile, "baz"));
+  }
+
+  public void testTargetsOfOtherBuildFiles() {
+    final PsiFile fooBuildFile = myFixture.addFileToProject("src/foo/BUILD", BUILD_TEXT);
+    final PsiFile barBuildFile = myFixture.addFileToProject("src/bar/BUILD", "java_library(name='qux')\n");
+    assertNull(PantsBuildTargetIndex.findTarget(fooBuildFile, "qux"));
+    assertTarget("java_library", PantsBuildTargetIndex.findTarget(barBuildFile, "qux"));
+    assertNull(PantsBuildTargetIndex.findTarget(barBuildFile, "foo"));
+  }
+
+  private static void assertTarget(String expectedType, PyCallExpression target) {
+    assertNotNull(target);
+    assertNotNull(target.getCallee());
+    assertEquals(expectedType, target.getCallee().getText());
+  }
+}
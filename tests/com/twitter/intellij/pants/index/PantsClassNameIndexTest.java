@@ -0,0 +1,38 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.index;
+
+import com.intellij.testFramework.UsefulTestCase;
+
+public class PantsClassNameIndexTest extends UsefulTestCase {
+  public void testJava() {
+    final String text =
+      "package foo;\n" +
+      "\n" +
+      "// class Commented\n" +
+      "/* interface AlsoCommented */\n" +
+      "public class Foo {\n" +
+      "  private static final String TEXT = \"class InString\";\n" +
+      "  private static final char QUOTE = '\"';\n" +
+      "  interface Bar {}\n" +
+      "  enum Baz { A }\n" +
+      "  Class<?> myClass = Foo.class;\n" +
+      "}\n" +
+      "@interface Qux {}\n";
+    assertSameElements(PantsClassNameIndex.findClassNames(text), "Foo", "Bar", "Baz", "Qux");
+  }
+
+  public void testScala() {
+    final String text =
+      "package foo\n" +
+      "\n" +
+      "case class Foo(name: String)\n" +
+      "trait Bar\n" +
+      "object Baz extends Bar {\n" +
+      "  val text = \"\"\"class InString \"quoted\" \"\"\"\n" +
+      "  val symbol = 'class\n" +
+      "}\n";
+    assertSameElements(PantsClassNameIndex.findClassNames(text), "Foo", "Bar", "Baz");
+  }
+}
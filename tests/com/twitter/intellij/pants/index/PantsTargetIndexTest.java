@@ -0,0 +1,30 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.index;
+
+import com.intellij.testFramework.UsefulTestCase;
+
+public class PantsTargetIndexTest extends UsefulTestCase {
+  public void testAliases() {
+    final String text =
+      "from pants.base.build_file_aliases import BuildFileAliases\n" +
+      "\n" +
+      "def build_file_aliases():\n" +
+      "  return BuildFileAliases.create(\n" +
+      "    targets={\n" +
+      "      'java_library': JavaLibrary,\n" +
+      "      # a comment\n" +
+      "      \"scala_library\": ScalaLibrary,\n" +
+      "      'jar_library': JarLibrary.wrap({'ignored': 1}),\n" +
+      "    },\n" +
+      "    objects={'jar': JarDependency},\n" +
+      "  )\n";
+    assertSameElements(PantsTargetIndex.findTargetAliases(text), "java_library", "scala_library", "jar_library", "jar");
+  }
+
+  public void testNoAliases() {
+    assertEmpty(PantsTargetIndex.findTargetAliases("def foo():\n  return {'java_library': JavaLibrary}\n"));
+    assertEmpty(PantsTargetIndex.findTargetAliases("def build_file_aliases():\n  return None\n"));
+  }
+}
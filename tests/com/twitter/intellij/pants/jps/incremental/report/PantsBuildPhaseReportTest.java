@@ -0,0 +1,73 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.jps.incremental.report;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.UsefulTestCase;
+
+import java.io.File;
+import java.util.List;
+
+public class PantsBuildPhaseReportTest extends UsefulTestCase {
+  private static final String[] OUTPUT = {
+    "20:31:41 00:00 [main]",
+    "               (To run a reporting server: ./pants server)",
+    "20:31:41 00:00   [bootstrap]",
+    "20:31:41 00:00     [bootstrap-jvm-tools]",
+    "20:31:42 00:01   [resolve]",
+    "20:31:42 00:01     [ivy]",
+    "20:31:42 00:01   [compile]",
+    "20:31:42 00:01     [jvm]",
+    "20:31:42 00:01       [jvm-compilers]",
+    "20:31:42 00:01         [prepare-analysis]",
+    "                     Invalidated 2 targets.",
+    "20:31:42 00:01         [partition-analysis]",
+    "                     Compiling 3 java sources in 2 targets (partition 1 of 1).",
+    "20:31:42 00:01         [compile]",
+    "20:31:42 00:01           [jmake]",
+    "                         Jmake version 1.3.8-10",
+    "20:31:43 00:02         [compile]",
+    "20:31:43 00:02           [zinc]",
+    "               SUCCESS"
+  };
+
+  public void testSummary() {
+    final PantsBuildPhaseReport report = new PantsBuildPhaseReport(5);
+    for (String line : OUTPUT) {
+      report.processLine(line + "\n");
+    }
+    final String summary = report.finish();
+    assertTrue(summary, summary.contains("Targets: 5 requested, 2 invalidated, 2 compiled (3 sources)"));
+    assertTrue(summary, summary.contains("Goals: bootstrap "));
+    assertTrue(summary, summary.contains(", resolve "));
+    assertTrue(summary, summary.contains(", compile "));
+    assertTrue(summary, summary.contains("Compilers (2 runs): jmake "));
+    assertTrue(summary, summary.contains(", zinc "));
+    assertFalse(summary, summary.contains("ivy"));
+  }
+
+  public void testAppendToLog() throws Exception {
+    final File log = new File(FileUtil.createTempDirectory("timings", null), "pants-build-timings.jsonl");
+    new PantsBuildPhaseReport(1).appendToLog(log);
+    new PantsBuildPhaseReport(2).appendToLog(log);
+    final List<String> lines = FileUtil.loadLines(log);
+    assertEquals(2, lines.size());
+    assertTrue(lines.get(0), lines.get(0).contains("\"requested_targets\":1"));
+    assertTrue(lines.get(1), lines.get(1).contains("\"requested_targets\":2"));
+  }
+
+  public void testLogTrimmedWhenTooLarge() throws Exception {
+    final File log = new File(FileUtil.createTempDirectory("timings", null), "pants-build-timings.jsonl");
+    final StringBuilder oldEntries = new StringBuilder();
+    while (oldEntries.length() <= PantsBuildPhaseReport.MAX_LOG_SIZE) {
+      oldEntries.append("{\"requested_targets\":0}\n");
+    }
+    FileUtil.writeToFile(log, oldEntries.toString());
+
+    new PantsBuildPhaseReport(3).appendToLog(log);
+    final List<String> lines = FileUtil.loadLines(log);
+    assertEquals(PantsBuildPhaseReport.MAX_LOG_ENTRIES, lines.size());
+    assertTrue(lines.get(lines.size() - 1), lines.get(lines.size() - 1).contains("\"requested_targets\":3"));
+  }
+}
@@ -0,0 +1,217 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.jps.incremental.worker;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.UsefulTestCase;
+import com.intellij.util.Processor;
+import org.jetbrains.jps.api.CanceledStatus;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class PantsCompileWorkerTest extends UsefulTestCase {
+  private static final long CONFIG_STAMP = 42;
+
+  private File myStateDir;
+  private ServerSocket myServerSocket;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myStateDir = FileUtil.createTempDirectory("pants-worker", null);
+    myServerSocket = new ServerSocket(0);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      myServerSocket.close();
+      FileUtil.delete(myStateDir);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testParsePort() {
+    assertEquals(4242, PantsCompileWorker.parsePort("PANTS_WORKER_PORT=4242"));
+    assertEquals(4242, PantsCompileWorker.parsePort("PANTS_WORKER_PORT= 4242 "));
+    assertEquals(-1, PantsCompileWorker.parsePort("PANTS_WORKER_PORT=foo"));
+    assertEquals(-1, PantsCompileWorker.parsePort("PANTS_WORKER_PORT=70000"));
+    assertEquals(-1, PantsCompileWorker.parsePort("Listening on 4242"));
+  }
+
+  public void testParseExitCode() {
+    assertEquals(Integer.valueOf(0), PantsCompileWorker.parseExitCode("PANTS_WORKER_EXIT=0"));
+    assertEquals(Integer.valueOf(1), PantsCompileWorker.parseExitCode("PANTS_WORKER_EXIT=1 "));
+    assertNull(PantsCompileWorker.parseExitCode("PANTS_WORKER_EXIT="));
+    assertNull(PantsCompileWorker.parseExitCode("PANTS_WORKER_EXIT=failed"));
+    assertNull(PantsCompileWorker.parseExitCode("SUCCESS"));
+  }
+
+  public void testEncodeRequest() {
+    assertEquals("compile\tsrc/java/foo:bar", PantsCompileWorker.encodeRequest(Arrays.asList("compile", "src/java/foo:bar")));
+    assertEquals("a\\tb\tc\\\\d\\ne", PantsCompileWorker.encodeRequest(Arrays.asList("a\tb", "c\\d\ne")));
+    assertEquals("\tfoo", PantsCompileWorker.encodeRequest(Arrays.asList("", "foo")));
+  }
+
+  public void testConfigStampChangesWithModuleFiles() throws Exception {
+    final File moduleFile = new File(myStateDir, "foo.iml");
+    FileUtil.writeToFile(moduleFile, "<module/>");
+    final List<String> addresses = Collections.singletonList("src/java/foo:bar");
+    final List<File> moduleFiles = Collections.singletonList(moduleFile);
+    final long stamp = PantsCompileWorker.computeConfigStamp(myStateDir, addresses, moduleFiles);
+    assertEquals(stamp, PantsCompileWorker.computeConfigStamp(myStateDir, addresses, moduleFiles));
+
+    FileUtil.writeToFile(moduleFile, "<module type=\"JAVA_MODULE\"/>");
+    assertFalse(stamp == PantsCompileWorker.computeConfigStamp(myStateDir, addresses, moduleFiles));
+  }
+
+  public void testReuseRunningWorker() throws Exception {
+    saveState(CONFIG_STAMP, System.currentTimeMillis());
+    assertTrue(createWorker().reuseRunningWorker());
+    assertTrue(getStateFile().exists());
+  }
+
+  public void testRestartAfterConfigChange() throws Exception {
+    saveState(CONFIG_STAMP - 1, System.currentTimeMillis());
+    final BlockingQueue<String> requests = serveRequests(1, Collections.<String>emptyList());
+    assertFalse(createWorker().reuseRunningWorker());
+    assertEquals("shutdown", requests.poll(10, TimeUnit.SECONDS));
+    assertFalse(getStateFile().exists());
+  }
+
+  public void testRestartAfterIdleTimeout() throws Exception {
+    saveState(CONFIG_STAMP, 0);
+    final BlockingQueue<String> requests = serveRequests(1, Collections.<String>emptyList());
+    assertFalse(createWorker().reuseRunningWorker());
+    assertEquals("shutdown", requests.poll(10, TimeUnit.SECONDS));
+    assertFalse(getStateFile().exists());
+  }
+
+  public void testRestartOfDeadWorker() throws Exception {
+    saveState(CONFIG_STAMP, System.currentTimeMillis());
+    myServerSocket.close();
+    assertFalse(createWorker().reuseRunningWorker());
+    assertFalse(getStateFile().exists());
+  }
+
+  public void testExecute() throws Exception {
+    saveState(CONFIG_STAMP, System.currentTimeMillis());
+    final PantsCompileWorker worker = createWorker();
+    assertTrue(worker.reuseRunningWorker());
+
+    final BlockingQueue<String> requests = serveRequests(1, Arrays.asList("Compiling 3 java sources", "PANTS_WORKER_EXIT=1"));
+    final List<String> output = new ArrayList<String>();
+    assertEquals(1, worker.execute(Arrays.asList("compile", "src/java/foo:bar"), collect(output), CanceledStatus.NULL));
+    assertEquals("compile\tsrc/java/foo:bar", requests.poll(10, TimeUnit.SECONDS));
+    assertEquals(Collections.singletonList("Compiling 3 java sources\n"), output);
+    assertTrue(getStateFile().exists());
+  }
+
+  public void testBrokenProtocol() throws Exception {
+    saveState(CONFIG_STAMP, System.currentTimeMillis());
+    final PantsCompileWorker worker = createWorker();
+    assertTrue(worker.reuseRunningWorker());
+
+    // the second connection is the shutdown request
+    final BlockingQueue<String> requests = serveRequests(2, Arrays.asList("Compiling 3 java sources"));
+    final List<String> output = new ArrayList<String>();
+    try {
+      worker.execute(Collections.singletonList("compile"), collect(output), CanceledStatus.NULL);
+      fail("A response without an exit code should fail");
+    }
+    catch (IOException ignored) {
+    }
+    assertEquals("compile", requests.poll(10, TimeUnit.SECONDS));
+    assertEquals("shutdown", requests.poll(10, TimeUnit.SECONDS));
+    assertEquals(1, output.size());
+    assertFalse(getStateFile().exists());
+  }
+
+  private PantsCompileWorker createWorker() {
+    return new PantsCompileWorker(new File(myStateDir, "pants"), myStateDir, CONFIG_STAMP);
+  }
+
+  private File getStateFile() {
+    return new File(myStateDir, "worker.properties");
+  }
+
+  private void saveState(long configStamp, long lastUsed) throws IOException {
+    final Properties properties = new Properties();
+    properties.setProperty(PantsCompileWorker.PORT_KEY, String.valueOf(myServerSocket.getLocalPort()));
+    properties.setProperty(PantsCompileWorker.CONFIG_STAMP_KEY, String.valueOf(configStamp));
+    properties.setProperty(PantsCompileWorker.LAST_USED_KEY, String.valueOf(lastUsed));
+    final OutputStream stream = new FileOutputStream(getStateFile());
+    try {
+      properties.store(stream, null);
+    }
+    finally {
+      stream.close();
+    }
+  }
+
+  /**
+   * Answers {@code connections} requests with {@code response} lines.
+   *
+   * @return the received request lines
+   */
+  private BlockingQueue<String> serveRequests(final int connections, final List<String> response) {
+    final BlockingQueue<String> requests = new ArrayBlockingQueue<String>(connections);
+    final Thread server = new Thread("Pants worker stub") {
+      @Override
+      public void run() {
+        try {
+          int served = 0;
+          while (served < connections) {
+            final Socket socket = myServerSocket.accept();
+            try {
+              final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+              final String request = reader.readLine();
+              // a liveness check connects without a request
+              if (request == null) {
+                continue;
+              }
+              requests.add(request);
+              served++;
+              final Writer writer = new OutputStreamWriter(socket.getOutputStream(), "UTF-8");
+              for (String line : response) {
+                writer.write(line + "\n");
+              }
+              writer.flush();
+            }
+            finally {
+              socket.close();
+            }
+          }
+        }
+        catch (IOException ignored) {
+        }
+      }
+    };
+    server.setDaemon(true);
+    server.start();
+    return requests;
+  }
+
+  private static Processor<String> collect(final List<String> output) {
+    return new Processor<String>() {
+      @Override
+      public boolean process(String line) {
+        output.add(line);
+        return true;
+      }
+    };
+  }
+}
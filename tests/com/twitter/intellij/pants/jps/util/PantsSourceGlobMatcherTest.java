@@ -0,0 +1,42 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.jps.util;
+
+import com.intellij.testFramework.UsefulTestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class PantsSourceGlobMatcherTest extends UsefulTestCase {
+  public void testGlobs() {
+    final PantsSourceGlobMatcher matcher = new PantsSourceGlobMatcher(Collections.singletonList("/repo/src/java/foo/*.java"));
+    assertTrue(matcher.matches("/repo/src/java/foo/Foo.java"));
+    assertFalse(matcher.matches("/repo/src/java/foo/Foo.scala"));
+    assertFalse(matcher.matches("/repo/src/java/foo/bar/Bar.java"));
+    assertFalse(matcher.matches("/repo/src/java/fooo/Foo.java"));
+  }
+
+  public void testRecursiveGlobs() {
+    final PantsSourceGlobMatcher matcher = new PantsSourceGlobMatcher(Collections.singletonList("/repo/src/java/foo/**/*.java"));
+    assertTrue(matcher.matches("/repo/src/java/foo/Foo.java"));
+    assertTrue(matcher.matches("/repo/src/java/foo/bar/baz/Baz.java"));
+    assertFalse(matcher.matches("/repo/src/java/Foo.java"));
+  }
+
+  public void testSeveralGlobs() {
+    final PantsSourceGlobMatcher matcher = new PantsSourceGlobMatcher(
+      Arrays.asList("/repo/src/java/foo/Foo.java", "/repo/src/java/foo/Bar?.java")
+    );
+    assertTrue(matcher.matches("/repo/src/java/foo/Foo.java"));
+    assertTrue(matcher.matches("/repo/src/java/foo/Bar1.java"));
+    assertFalse(matcher.matches("/repo/src/java/foo/Bar.java"));
+    assertFalse(matcher.matches("/repo/src/java/foo/Baz.java"));
+  }
+
+  public void testSpecialCharacters() {
+    final PantsSourceGlobMatcher matcher = new PantsSourceGlobMatcher(Collections.singletonList("/repo/src/c++/(foo)/*.java"));
+    assertTrue(matcher.matches("/repo/src/c++/(foo)/Foo.java"));
+    assertFalse(matcher.matches("/repo/src/cc/foo/Foo.java"));
+  }
+}
@@ -3,9 +3,24 @@
 
 package com.twitter.intellij.pants.quickfix;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.externalSystem.util.ExternalSystemConstants;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.module.StdModuleTypes;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.io.FileUtil;
+import com.twitter.intellij.pants.service.project.metadata.PantsModuleAddressIndex;
+import com.twitter.intellij.pants.settings.PantsProjectSettings;
+import com.twitter.intellij.pants.settings.PantsSettings;
 import com.twitter.intellij.pants.testFramework.PantsCodeInsightFixtureTestCase;
 import com.twitter.intellij.pants.model.PantsTargetAddress;
+import com.twitter.intellij.pants.util.PantsConstants;
+
+import java.io.File;
+import java.util.Arrays;
 
 public class AddPantsTargetDependencyFixTest extends PantsCodeInsightFixtureTestCase {
   public AddPantsTargetDependencyFixTest() {
@@ -25,7 +40,7 @@ public class AddPantsTargetDependencyFixTest extends PantsCodeInsightFixtureTest
       new Runnable() {
         @Override
         public void run() {
-          dependencyFix.doInsert(myFixture.getFile(), targetName, dependencyAddress);
+          dependencyFix.doInsert(myFixture.getFile());
         }
       }
     );
@@ -43,4 +58,62 @@ public class AddPantsTargetDependencyFixTest extends PantsCodeInsightFixtureTest
   public void testLast() {
     doTest("test", "bar/baz3");
   }
+
+  public void testModuleDependency() throws Exception {
+    final File moduleDir = FileUtil.createTempDirectory("pants-module", null);
+    final Module dependency = ApplicationManager.getApplication().runWriteAction(
+      new Computable<Module>() {
+        @Override
+        public Module compute() {
+          final String moduleFilePath = new File(moduleDir, "dependency.iml").getPath();
+          return ModuleManager.getInstance(getProject()).newModule(moduleFilePath, StdModuleTypes.JAVA.getId());
+        }
+      }
+    );
+    try {
+      dependency.setOption(ExternalSystemConstants.EXTERNAL_SYSTEM_ID_KEY, PantsConstants.SYSTEM_ID.getId());
+      dependency.setOption(PantsConstants.PANTS_TARGET_ADDRESSES_KEY, "bar/baz3:baz3");
+      myModule.setOption(PantsConstants.PANTS_TARGET_ADDRESSES_KEY, "test/path:test");
+      PantsModuleAddressIndex.getInstance(getProject()).update(Arrays.asList(myModule, dependency));
+
+      doTest("test", "bar/baz3");
+      assertTrue(ModuleRootManager.getInstance(myModule).isDependsOn(dependency));
+    }
+    finally {
+      myModule.clearOption(PantsConstants.PANTS_TARGET_ADDRESSES_KEY);
+      PantsModuleAddressIndex.getInstance(getProject()).update(Arrays.asList(myModule));
+      ApplicationManager.getApplication().runWriteAction(
+        new Runnable() {
+          @Override
+          public void run() {
+            ModuleManager.getInstance(getProject()).disposeModule(dependency);
+          }
+        }
+      );
+      FileUtil.delete(moduleDir);
+    }
+  }
+
+  public void testProjectToRefresh() {
+    final String linkedProjectPath = "/pants/test/path/BUILD";
+    myModule.setOption(ExternalSystemConstants.LINKED_PROJECT_PATH_KEY, linkedProjectPath);
+    try {
+      // without linked project settings all projects are refreshed
+      assertNull(AddPantsTargetDependencyFix.findProjectToRefresh(getProject(), myModule));
+      assertNull(AddPantsTargetDependencyFix.findProjectToRefresh(getProject(), null));
+
+      final PantsProjectSettings projectSettings = new PantsProjectSettings();
+      projectSettings.setExternalProjectPath(linkedProjectPath);
+      PantsSettings.getInstance(getProject()).linkProject(projectSettings);
+      try {
+        assertEquals(linkedProjectPath, AddPantsTargetDependencyFix.findProjectToRefresh(getProject(), myModule));
+      }
+      finally {
+        PantsSettings.getInstance(getProject()).unlinkExternalProject(linkedProjectPath);
+      }
+    }
+    finally {
+      myModule.clearOption(ExternalSystemConstants.LINKED_PROJECT_PATH_KEY);
+    }
+  }
 }
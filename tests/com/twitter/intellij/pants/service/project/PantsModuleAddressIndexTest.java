@@ -0,0 +1,104 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project;
+
+import com.intellij.openapi.application.AccessToken;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.externalSystem.util.ExternalSystemConstants;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.twitter.intellij.pants.model.PantsTargetAddress;
+import com.twitter.intellij.pants.service.project.metadata.PantsModuleAddressIndex;
+import com.twitter.intellij.pants.testFramework.PantsCodeInsightFixtureTestCase;
+import com.twitter.intellij.pants.util.PantsConstants;
+
+import java.io.File;
+import java.util.Collections;
+
+public class PantsModuleAddressIndexTest extends PantsCodeInsightFixtureTestCase {
+  private File myRepo;
+  private VirtualFile myFooDir;
+  private VirtualFile myBUILDFile;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    // BUILD files of modules are resolved by their local paths
+    myRepo = FileUtil.createTempDirectory("pants-repo", null);
+    final File fooDir = new File(myRepo, "src/java/foo");
+    assertTrue(fooDir.mkdirs());
+    FileUtil.writeToFile(new File(fooDir, "BUILD"), "java_library(name='foo')\n");
+    myFooDir = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(fooDir);
+    assertNotNull(myFooDir);
+    myBUILDFile = myFooDir.findChild("BUILD");
+    assertNotNull(myBUILDFile);
+
+    myModule.setOption(PantsConstants.PANTS_TARGET_ADDRESSES_KEY, "src/java/foo:foo,src/java/foo:bar");
+    myModule.setOption(ExternalSystemConstants.LINKED_PROJECT_PATH_KEY, myBUILDFile.getPath() + ":foo");
+    getIndex().update(Collections.singletonList(myModule));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      myModule.clearOption(PantsConstants.PANTS_TARGET_ADDRESSES_KEY);
+      myModule.clearOption(ExternalSystemConstants.LINKED_PROJECT_PATH_KEY);
+      // the light project is shared between tests
+      getIndex().update(Collections.singletonList(myModule));
+      FileUtil.delete(myRepo);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  private PantsModuleAddressIndex getIndex() {
+    return PantsModuleAddressIndex.getInstance(getProject());
+  }
+
+  public void testMappings() {
+    assertSameElements(
+      getIndex().getTargetAddresses(myModule),
+      PantsTargetAddress.fromString("src/java/foo:foo"), PantsTargetAddress.fromString("src/java/foo:bar")
+    );
+    assertEquals(myModule, getIndex().findModule(PantsTargetAddress.fromString("src/java/foo:bar")));
+    assertNull(getIndex().findModule(PantsTargetAddress.fromString("src/java/foo:baz")));
+    assertEquals(myBUILDFile, getIndex().findBUILDFile(myModule));
+  }
+
+  public void testUpdate() {
+    myModule.setOption(PantsConstants.PANTS_TARGET_ADDRESSES_KEY, "src/java/foo:baz");
+    getIndex().update(Collections.singletonList(myModule));
+
+    assertNull(getIndex().findModule(PantsTargetAddress.fromString("src/java/foo:bar")));
+    assertEquals(myModule, getIndex().findModule(PantsTargetAddress.fromString("src/java/foo:baz")));
+  }
+
+  public void testRemove() {
+    getIndex().remove(Collections.singletonList(myModule));
+
+    assertEmpty(getIndex().getTargetAddresses(myModule));
+    assertNull(getIndex().findModule(PantsTargetAddress.fromString("src/java/foo:foo")));
+    assertNull(getIndex().findBUILDFile(myModule));
+  }
+
+  public void testDeletedBUILDFile() throws Exception {
+    assertEquals(myBUILDFile, getIndex().findBUILDFile(myModule));
+
+    final AccessToken token = ApplicationManager.getApplication().acquireWriteActionLock(getClass());
+    final VirtualFile newBUILDFile;
+    try {
+      myBUILDFile.delete(this);
+      assertNull(getIndex().findBUILDFile(myModule));
+
+      newBUILDFile = myFooDir.createChildData(this, "BUILD");
+    }
+    finally {
+      token.finish();
+    }
+    // the stale file is never returned, the module's BUILD file is looked up again
+    assertEquals(newBUILDFile, getIndex().findBUILDFile(myModule));
+  }
+}
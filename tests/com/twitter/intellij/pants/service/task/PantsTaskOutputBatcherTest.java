@@ -0,0 +1,60 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.task;
+
+import com.intellij.execution.process.NopProcessHandler;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.openapi.externalSystem.model.task.ExternalSystemTaskId;
+import com.intellij.openapi.externalSystem.model.task.ExternalSystemTaskNotificationListenerAdapter;
+import com.intellij.openapi.externalSystem.model.task.ExternalSystemTaskType;
+import com.intellij.testFramework.UsefulTestCase;
+import com.twitter.intellij.pants.util.PantsConstants;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PantsTaskOutputBatcherTest extends UsefulTestCase {
+  private final List<String> myOutputs = new ArrayList<String>();
+  private PantsTaskOutputBatcher myBatcher;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    final ExternalSystemTaskId id = ExternalSystemTaskId.create(PantsConstants.SYSTEM_ID, ExternalSystemTaskType.EXECUTE_TASK, "test");
+    myBatcher = new PantsTaskOutputBatcher(
+      id,
+      new ExternalSystemTaskNotificationListenerAdapter() {
+        @Override
+        public void onTaskOutput(@NotNull ExternalSystemTaskId id, @NotNull String text, boolean stdOut) {
+          myOutputs.add((stdOut ? "out: " : "err: ") + text);
+        }
+      }
+    );
+  }
+
+  private void output(@NotNull String text, boolean stdOut) {
+    myBatcher.onTextAvailable(new ProcessEvent(new NopProcessHandler(), text), stdOut ? ProcessOutputTypes.STDOUT : ProcessOutputTypes.STDERR);
+  }
+
+  public void testBatches() {
+    output("foo\n", true);
+    output("bar\n", true);
+    output("error\n", false);
+    output("baz\n", true);
+    myBatcher.processTerminated(new ProcessEvent(new NopProcessHandler()));
+    assertOrderedEquals(myOutputs, "out: foo\nbar\n", "err: error\n", "out: baz\n");
+  }
+
+  public void testLargeBatches() {
+    final StringBuilder line = new StringBuilder();
+    for (int i = 0; i < 1024; i++) {
+      line.append("0123456789");
+    }
+    output(line.toString(), true);
+    // flushed without waiting for the process to terminate
+    assertOrderedEquals(myOutputs, "out: " + line);
+  }
+}
@@ -0,0 +1,96 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.util;
+
+import com.intellij.openapi.application.AccessToken;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.twitter.intellij.pants.testFramework.PantsCodeInsightFixtureTestCase;
+
+public class PantsExecutableCacheTest extends PantsCodeInsightFixtureTestCase {
+  private VirtualFile myRepo;
+  private VirtualFile myPants;
+  private AccessToken myWriteAccessToken;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myWriteAccessToken = ApplicationManager.getApplication().acquireWriteActionLock(getClass());
+    myRepo = myFixture.getTempDirFixture().findOrCreateDir("repo");
+    myPants = myRepo.createChildData(this, PantsConstants.PANTS);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    myWriteAccessToken.finish();
+    super.tearDown();
+  }
+
+  private PantsExecutableCache getCache() {
+    return PantsExecutableCache.getInstance(getProject());
+  }
+
+  public void testAncestorsAreCached() throws Exception {
+    final VirtualFile foo = VfsUtil.createDirectoryIfMissing(myRepo, "src/java/foo");
+    assertEquals(myPants, getCache().findPantsExecutable(foo));
+    assertTrue(getCache().isCached(foo));
+    assertTrue(getCache().isCached(foo.getParent()));
+    assertTrue(getCache().isCached(myRepo));
+  }
+
+  public void testNewExecutable() throws Exception {
+    final VirtualFile foo = VfsUtil.createDirectoryIfMissing(myRepo, "src/java/foo");
+    final VirtualFile bar = VfsUtil.createDirectoryIfMissing(myRepo, "src/java/bar");
+    assertEquals(myPants, getCache().findPantsExecutable(foo));
+    assertEquals(myPants, getCache().findPantsExecutable(bar));
+
+    final VirtualFile fooPants = foo.createChildData(this, PantsConstants.PANTS);
+    assertEquals(fooPants, getCache().findPantsExecutable(foo));
+    // only directories under the new executable are dropped
+    assertTrue(getCache().isCached(bar));
+    assertEquals(myPants, getCache().findPantsExecutable(bar));
+  }
+
+  public void testDeletedExecutable() throws Exception {
+    final VirtualFile foo = VfsUtil.createDirectoryIfMissing(myRepo, "src/java/foo");
+    final VirtualFile fooPants = foo.createChildData(this, PantsConstants.PANTS);
+    assertEquals(fooPants, getCache().findPantsExecutable(foo));
+
+    fooPants.delete(this);
+    assertEquals(myPants, getCache().findPantsExecutable(foo));
+  }
+
+  public void testRenamedExecutable() throws Exception {
+    final VirtualFile foo = VfsUtil.createDirectoryIfMissing(myRepo, "src/java/foo");
+    final VirtualFile fooPants = foo.createChildData(this, "pants.bak");
+    assertEquals(myPants, getCache().findPantsExecutable(foo));
+
+    fooPants.rename(this, PantsConstants.PANTS);
+    assertEquals(fooPants, getCache().findPantsExecutable(foo));
+  }
+
+  public void testMovedDirectory() throws Exception {
+    final VirtualFile foo = VfsUtil.createDirectoryIfMissing(myRepo, "src/java/foo");
+    final VirtualFile other = VfsUtil.createDirectoryIfMissing(myRepo, "other");
+    final VirtualFile otherPants = other.createChildData(this, PantsConstants.PANTS);
+    assertEquals(myPants, getCache().findPantsExecutable(foo));
+
+    foo.move(this, other);
+    assertFalse(getCache().isCached(foo));
+    assertEquals(otherPants, getCache().findPantsExecutable(foo));
+  }
+
+  public void testUnrelatedChangesKeepCache() throws Exception {
+    final VirtualFile foo = VfsUtil.createDirectoryIfMissing(myRepo, "src/java/foo");
+    assertEquals(myPants, getCache().findPantsExecutable(foo));
+
+    final VirtualFile bar = VfsUtil.createDirectoryIfMissing(myRepo, "src/java/bar");
+    bar.rename(this, "baz");
+    bar.delete(this);
+    foo.createChildData(this, "Foo.java").rename(this, "Bar.java");
+    assertTrue(getCache().isCached(foo));
+    assertTrue(getCache().isCached(myRepo));
+  }
+}
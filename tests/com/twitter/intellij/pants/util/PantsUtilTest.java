@@ -0,0 +1,61 @@
+// Copyright 2015 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.util;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.UsefulTestCase;
+
+import java.io.File;
+
+public class PantsUtilTest extends UsefulTestCase {
+  private File myRepo;
+  private File myPants;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myRepo = FileUtil.createTempDirectory("pants-repo", null);
+    myPants = new File(myRepo, PantsConstants.PANTS);
+    FileUtil.writeToFile(myPants, "");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myRepo);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testFindPantsExecutableCachesAncestors() throws Exception {
+    final File foo = new File(myRepo, "src/java/foo");
+    assertTrue(foo.mkdirs());
+    final File fooJava = new File(foo, "Foo.java");
+    FileUtil.writeToFile(fooJava, "");
+
+    assertEquals(myPants, PantsUtil.findPantsExecutable(fooJava));
+    assertTrue(PantsUtil.isPantsExecutableCached(foo));
+    assertTrue(PantsUtil.isPantsExecutableCached(foo.getParentFile()));
+    assertTrue(PantsUtil.isPantsExecutableCached(myRepo));
+    assertEquals(myRepo, PantsUtil.findPantsWorkingDir(new File(myRepo, "src/java/bar")));
+  }
+
+  public void testFindPantsExecutableChecksHits() throws Exception {
+    final File foo = new File(myRepo, "src/java/foo");
+    assertTrue(foo.mkdirs());
+    final File fooPants = new File(foo, PantsConstants.PANTS);
+    FileUtil.writeToFile(fooPants, "");
+    assertEquals(fooPants, PantsUtil.findPantsExecutable(foo));
+
+    // e.g. deleted by another process, there are no VFS events outside of the IDE
+    assertTrue(FileUtil.delete(fooPants));
+    assertEquals(myPants, PantsUtil.findPantsExecutable(foo));
+
+    assertTrue(FileUtil.delete(myPants));
+    assertNull(PantsUtil.findPantsExecutable(foo));
+    assertFalse(PantsUtil.isPantsExecutableCached(foo));
+  }
+}